@@ -0,0 +1,65 @@
+package com.example.mlkitdemo;
+
+import android.os.SystemClock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe cache that suppresses repeat reports of the same barcode.
+ *
+ * Codes are keyed by raw value and format. A code is reported as new the first time it is seen
+ * and again once it has been out of sight for longer than the TTL; every sighting refreshes the
+ * entry, so a label held in front of the camera stays suppressed. Entries are kept in the order
+ * they were last seen, so expired codes are purged from the front in one pass and the cache never
+ * holds more than {@code maxEntries} codes, dropping the least recently seen first.
+ */
+public class BarcodeDeduplicator {
+
+    private final long ttlMs;
+    private final Map<String, Long> lastSeen;
+
+    public BarcodeDeduplicator(long ttlMs, int maxEntries) {
+        if (ttlMs <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("ttlMs and maxEntries must be positive");
+        }
+        this.ttlMs = ttlMs;
+        // Access-ordered, so the eldest entry is always the least recently seen code
+        this.lastSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Records a sighting of the given code and returns whether it should be reported.
+     */
+    public synchronized boolean markIfNew(String rawValue, int format) {
+        if (rawValue == null) {
+            return false;
+        }
+        long now = SystemClock.elapsedRealtime();
+        purgeExpired(now);
+        // Expired codes were just purged, so any entry left was seen within the TTL
+        return lastSeen.put(format + ":" + rawValue, now) == null;
+    }
+
+    /**
+     * Forgets every code, so the next sighting of each one is reported again.
+     */
+    public synchronized void clear() {
+        lastSeen.clear();
+    }
+
+    private void purgeExpired(long now) {
+        for (Iterator<Long> it = lastSeen.values().iterator(); it.hasNext(); ) {
+            if (now - it.next() < ttlMs) {
+                return; // Everything after this was seen more recently
+            }
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+/**
+ * Graphic instance for rendering a barcode's bounding box and raw value.
+ */
+public class BarcodeGraphic extends GraphicOverlay.Graphic {
+    private static final float BOX_STROKE_WIDTH = 6.0f;
+    private static final float LABEL_TEXT_SIZE = 36.0f;
+    private static final int MAX_LABEL_LENGTH = 24;
+
+    private static final int BOX_COLOR = Color.parseColor("#34A853"); // Google Green
+    private static final int TEXT_COLOR = Color.WHITE;
+
+    // Paints are only used on the UI thread, so every graphic can share them
+    private static final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    static {
+        boxPaint.setColor(BOX_COLOR);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(BOX_STROKE_WIDTH);
+
+        textPaint.setColor(TEXT_COLOR);
+        textPaint.setTextSize(LABEL_TEXT_SIZE);
+        textPaint.setShadowLayer(5.0f, 0, 0, Color.BLACK);
+    }
+
+    private final Rect boundingBox;
+    private final int offsetX;
+    private final int offsetY;
+    private final String label;
+    private final RectF rect = new RectF();
+
+    public BarcodeGraphic(GraphicOverlay overlay, Barcode barcode) {
+        this(overlay, barcode, 0, 0);
+    }
+
+    /**
+     * Creates a graphic for a barcode detected in a cropped region whose top-left corner sits at
+     * ({@code offsetX}, {@code offsetY}) in the full upright frame.
+     */
+    public BarcodeGraphic(GraphicOverlay overlay, Barcode barcode, int offsetX, int offsetY) {
+        super(overlay);
+        this.boundingBox = barcode.getBoundingBox();
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+
+        String rawValue = barcode.getRawValue() != null ? barcode.getRawValue() : "";
+        this.label = rawValue.length() > MAX_LABEL_LENGTH
+                ? rawValue.substring(0, MAX_LABEL_LENGTH) + "…"
+                : rawValue;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (boundingBox == null) {
+            return;
+        }
+
+        rect.set(boundingBox);
+        rect.offset(offsetX, offsetY);
+        mapRect(rect);
+
+        canvas.drawRect(rect, boxPaint);
+        canvas.drawText(label, rect.left, rect.top - BOX_STROKE_WIDTH, textPaint);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.mlkitdemo;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed, immutable interpretation of one barcode's payload.
+ *
+ * {@link #fields} holds the decoded values in display order, keyed by the {@code FIELD_*}
+ * constants (or by GS1 element title for {@link Kind#GS1}). {@link #actionUri} is set for kinds
+ * that open directly from a URI; contacts and calendar events are opened from their fields.
+ */
+public final class BarcodePayload {
+    public static final String FIELD_TITLE = "Title";
+    public static final String FIELD_URL = "URL";
+    public static final String FIELD_NETWORK = "Network";
+    public static final String FIELD_PASSWORD = "Password";
+    public static final String FIELD_SECURITY = "Security";
+    public static final String FIELD_NAME = "Name";
+    public static final String FIELD_ORGANIZATION = "Organization";
+    public static final String FIELD_PHONE = "Phone";
+    public static final String FIELD_EMAIL = "Email";
+    public static final String FIELD_ADDRESS = "Address";
+    public static final String FIELD_SUBJECT = "Subject";
+    public static final String FIELD_MESSAGE = "Message";
+    public static final String FIELD_LOCATION = "Location";
+    public static final String FIELD_START = "Start";
+    public static final String FIELD_END = "End";
+
+    public enum Kind {
+        TEXT,
+        URL,
+        WIFI,
+        CONTACT,
+        CALENDAR,
+        EMAIL,
+        PHONE,
+        SMS,
+        GEO,
+        PRODUCT,
+        GS1
+    }
+
+    public final Kind kind;
+    public final String rawValue;
+    public final Map<String, String> fields;
+    public final String actionUri;
+    public final List<Gs1Parser.Element> gs1Elements;
+    // Epoch millis of a calendar event, or -1
+    public final long startMillis;
+    public final long endMillis;
+
+    private final String summary;
+
+    BarcodePayload(Kind kind, String rawValue, LinkedHashMap<String, String> fields, String actionUri,
+                   List<Gs1Parser.Element> gs1Elements, long startMillis, long endMillis) {
+        this.kind = kind;
+        this.rawValue = rawValue;
+        this.fields = Collections.unmodifiableMap(fields);
+        this.actionUri = actionUri;
+        this.gs1Elements = gs1Elements != null ? gs1Elements : Collections.emptyList();
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.summary = buildSummary();
+    }
+
+    /**
+     * Returns the field value, or null if the payload does not have it.
+     */
+    public String get(String field) {
+        return fields.get(field);
+    }
+
+    /**
+     * Returns one "label: value" line per field, or the raw value if nothing was decoded.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    private String buildSummary() {
+        if (fields.isEmpty()) {
+            return rawValue;
+        }
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(field.getKey()).append(": ").append(field.getValue());
+        }
+        return text.toString();
+    }
+}
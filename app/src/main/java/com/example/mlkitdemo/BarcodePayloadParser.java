@@ -0,0 +1,195 @@
+package com.example.mlkitdemo;
+
+import android.net.Uri;
+import android.util.LruCache;
+
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Turns scanned barcodes into typed {@link BarcodePayload}s.
+ *
+ * The structured fields ML Kit already decodes (Wi-Fi, URL bookmarks, contacts, calendar events,
+ * email, phone, SMS and geo points) are copied into the payload, and logistics codes are split
+ * into GS1 application identifiers. Results are memoized by format and raw value, so a code that
+ * stays in view, or is scanned again, is decoded only once.
+ *
+ * Thread-safe; the cache synchronizes internally.
+ */
+public class BarcodePayloadParser {
+    private static final int CACHE_SIZE = 256;
+
+    private final LruCache<String, BarcodePayload> cache = new LruCache<>(CACHE_SIZE);
+
+    /**
+     * Returns the payload of {@code barcode}, or null if it has no raw value.
+     */
+    public BarcodePayload parse(Barcode barcode) {
+        String rawValue = barcode.getRawValue();
+        if (rawValue == null) {
+            return null;
+        }
+        String key = barcode.getFormat() + ":" + rawValue;
+        BarcodePayload payload = cache.get(key);
+        if (payload == null) {
+            payload = decode(barcode, rawValue);
+            cache.put(key, payload);
+        }
+        return payload;
+    }
+
+    private static BarcodePayload decode(Barcode barcode, String rawValue) {
+        LinkedHashMap<String, String> fields = new LinkedHashMap<>();
+        switch (barcode.getValueType()) {
+            case Barcode.TYPE_URL: {
+                Barcode.UrlBookmark bookmark = barcode.getUrl();
+                if (bookmark == null || bookmark.getUrl() == null) {
+                    break;
+                }
+                put(fields, BarcodePayload.FIELD_TITLE, bookmark.getTitle());
+                put(fields, BarcodePayload.FIELD_URL, bookmark.getUrl());
+                return new BarcodePayload(BarcodePayload.Kind.URL, rawValue, fields,
+                        bookmark.getUrl(), null, -1, -1);
+            }
+            case Barcode.TYPE_WIFI: {
+                Barcode.WiFi wifi = barcode.getWifi();
+                if (wifi == null) {
+                    break;
+                }
+                put(fields, BarcodePayload.FIELD_NETWORK, wifi.getSsid());
+                put(fields, BarcodePayload.FIELD_PASSWORD, wifi.getPassword());
+                put(fields, BarcodePayload.FIELD_SECURITY, wifiSecurity(wifi.getEncryptionType()));
+                return new BarcodePayload(BarcodePayload.Kind.WIFI, rawValue, fields, null, null, -1, -1);
+            }
+            case Barcode.TYPE_CONTACT_INFO: {
+                Barcode.ContactInfo contact = barcode.getContactInfo();
+                if (contact == null) {
+                    break;
+                }
+                if (contact.getName() != null) {
+                    put(fields, BarcodePayload.FIELD_NAME, contact.getName().getFormattedName());
+                }
+                put(fields, BarcodePayload.FIELD_ORGANIZATION, contact.getOrganization());
+                if (!contact.getPhones().isEmpty()) {
+                    put(fields, BarcodePayload.FIELD_PHONE, contact.getPhones().get(0).getNumber());
+                }
+                if (!contact.getEmails().isEmpty()) {
+                    put(fields, BarcodePayload.FIELD_EMAIL, contact.getEmails().get(0).getAddress());
+                }
+                if (!contact.getUrls().isEmpty()) {
+                    put(fields, BarcodePayload.FIELD_URL, contact.getUrls().get(0));
+                }
+                return new BarcodePayload(BarcodePayload.Kind.CONTACT, rawValue, fields, null, null, -1, -1);
+            }
+            case Barcode.TYPE_CALENDAR_EVENT: {
+                Barcode.CalendarEvent event = barcode.getCalendarEvent();
+                if (event == null) {
+                    break;
+                }
+                put(fields, BarcodePayload.FIELD_TITLE, event.getSummary());
+                put(fields, BarcodePayload.FIELD_LOCATION, event.getLocation());
+                if (event.getStart() != null) {
+                    put(fields, BarcodePayload.FIELD_START, event.getStart().getRawValue());
+                }
+                if (event.getEnd() != null) {
+                    put(fields, BarcodePayload.FIELD_END, event.getEnd().getRawValue());
+                }
+                return new BarcodePayload(BarcodePayload.Kind.CALENDAR, rawValue, fields, null, null,
+                        toMillis(event.getStart()), toMillis(event.getEnd()));
+            }
+            case Barcode.TYPE_EMAIL: {
+                Barcode.Email email = barcode.getEmail();
+                if (email == null || email.getAddress() == null) {
+                    break;
+                }
+                put(fields, BarcodePayload.FIELD_EMAIL, email.getAddress());
+                put(fields, BarcodePayload.FIELD_SUBJECT, email.getSubject());
+                put(fields, BarcodePayload.FIELD_MESSAGE, email.getBody());
+                return new BarcodePayload(BarcodePayload.Kind.EMAIL, rawValue, fields,
+                        "mailto:" + email.getAddress(), null, -1, -1);
+            }
+            case Barcode.TYPE_PHONE: {
+                Barcode.Phone phone = barcode.getPhone();
+                if (phone == null || phone.getNumber() == null) {
+                    break;
+                }
+                put(fields, BarcodePayload.FIELD_PHONE, phone.getNumber());
+                return new BarcodePayload(BarcodePayload.Kind.PHONE, rawValue, fields,
+                        "tel:" + Uri.encode(phone.getNumber()), null, -1, -1);
+            }
+            case Barcode.TYPE_SMS: {
+                Barcode.Sms sms = barcode.getSms();
+                if (sms == null || sms.getPhoneNumber() == null) {
+                    break;
+                }
+                put(fields, BarcodePayload.FIELD_PHONE, sms.getPhoneNumber());
+                put(fields, BarcodePayload.FIELD_MESSAGE, sms.getMessage());
+                return new BarcodePayload(BarcodePayload.Kind.SMS, rawValue, fields,
+                        "smsto:" + Uri.encode(sms.getPhoneNumber()), null, -1, -1);
+            }
+            case Barcode.TYPE_GEO: {
+                Barcode.GeoPoint point = barcode.getGeoPoint();
+                if (point == null) {
+                    break;
+                }
+                String coordinates = point.getLat() + "," + point.getLng();
+                put(fields, BarcodePayload.FIELD_LOCATION, coordinates);
+                return new BarcodePayload(BarcodePayload.Kind.GEO, rawValue, fields,
+                        "geo:" + coordinates, null, -1, -1);
+            }
+            default:
+                break;
+        }
+
+        // Logistics labels carry GS1 element strings, whatever value type ML Kit reports
+        if (Gs1Parser.looksLikeGs1(rawValue)) {
+            List<Gs1Parser.Element> elements = Gs1Parser.parse(rawValue);
+            if (elements != null) {
+                for (Gs1Parser.Element element : elements) {
+                    fields.put(element.title + " (" + element.ai + ")", element.value);
+                }
+                return new BarcodePayload(BarcodePayload.Kind.GS1, rawValue, fields, null, elements, -1, -1);
+            }
+        }
+
+        if (barcode.getValueType() == Barcode.TYPE_PRODUCT || barcode.getValueType() == Barcode.TYPE_ISBN) {
+            return new BarcodePayload(BarcodePayload.Kind.PRODUCT, rawValue, fields, null, null, -1, -1);
+        }
+        return new BarcodePayload(BarcodePayload.Kind.TEXT, rawValue, fields, null, null, -1, -1);
+    }
+
+    private static void put(LinkedHashMap<String, String> fields, String field, String value) {
+        if (value != null && !value.isEmpty()) {
+            fields.put(field, value);
+        }
+    }
+
+    private static String wifiSecurity(int encryptionType) {
+        switch (encryptionType) {
+            case Barcode.WiFi.TYPE_WPA:
+                return "WPA";
+            case Barcode.WiFi.TYPE_WEP:
+                return "WEP";
+            default:
+                return "Open";
+        }
+    }
+
+    private static long toMillis(Barcode.CalendarDateTime dateTime) {
+        if (dateTime == null || dateTime.getYear() < 0 || dateTime.getMonth() < 0 || dateTime.getDay() < 0) {
+            return -1;
+        }
+        Calendar calendar = dateTime.isUtc()
+                ? Calendar.getInstance(TimeZone.getTimeZone("UTC"))
+                : Calendar.getInstance();
+        calendar.clear();
+        calendar.set(dateTime.getYear(), dateTime.getMonth() - 1, dateTime.getDay(),
+                Math.max(dateTime.getHours(), 0), Math.max(dateTime.getMinutes(), 0),
+                Math.max(dateTime.getSeconds(), 0));
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mlkitdemo;
+
+import androidx.annotation.StringRes;
+
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+/**
+ * Named barcode scanning profiles. Each one restricts the symbologies the scanner searches for
+ * and the centered region of the frame it is given, which are the two cheapest ways to cut
+ * per-frame decode latency.
+ */
+public enum BarcodeScanProfile {
+    ALL_FORMATS(R.string.profile_all_formats, 1f, 1f,
+            Barcode.FORMAT_ALL_FORMATS),
+    RETAIL_1D(R.string.profile_retail_1d, 0.9f, 0.4f,
+            Barcode.FORMAT_EAN_13, Barcode.FORMAT_EAN_8, Barcode.FORMAT_UPC_A, Barcode.FORMAT_UPC_E),
+    QR_ONLY(R.string.profile_qr_only, 0.7f, 0.7f,
+            Barcode.FORMAT_QR_CODE),
+    DATAMATRIX_LOGISTICS(R.string.profile_datamatrix_logistics, 0.8f, 0.6f,
+            Barcode.FORMAT_DATA_MATRIX, Barcode.FORMAT_CODE_128);
+
+    @StringRes
+    private final int labelRes;
+    private final float roiWidthFraction;
+    private final float roiHeightFraction;
+    private final int format;
+    private final int[] moreFormats;
+
+    BarcodeScanProfile(@StringRes int labelRes, float roiWidthFraction, float roiHeightFraction,
+                       int format, int... moreFormats) {
+        this.labelRes = labelRes;
+        this.roiWidthFraction = roiWidthFraction;
+        this.roiHeightFraction = roiHeightFraction;
+        this.format = format;
+        this.moreFormats = moreFormats;
+    }
+
+    @StringRes
+    public int getLabelRes() {
+        return labelRes;
+    }
+
+    /**
+     * Width of the region of interest as a fraction of the upright frame.
+     */
+    public float getRoiWidthFraction() {
+        return roiWidthFraction;
+    }
+
+    /**
+     * Height of the region of interest as a fraction of the upright frame.
+     */
+    public float getRoiHeightFraction() {
+        return roiHeightFraction;
+    }
+
+    public BarcodeScannerOptions toScannerOptions() {
+        return new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(format, moreFormats)
+                .build();
+    }
+
+    /**
+     * Returns the profile after this one, wrapping around.
+     */
+    public BarcodeScanProfile next() {
+        BarcodeScanProfile[] profiles = values();
+        return profiles[(ordinal() + 1) % profiles.length];
+    }
+}
@@ -3,16 +3,18 @@ package com.example.mlkitdemo;
 import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
+import android.content.ActivityNotFoundException;
 import android.content.Intent;
-import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.Vibrator;
 import android.util.Log;
-import android.util.Patterns;
+import android.provider.CalendarContract;
+import android.provider.ContactsContract;
+import android.provider.Settings;
+import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.app.SearchManager; // Added for web search intent
@@ -20,34 +22,60 @@ import android.app.SearchManager; // Added for web search intent
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 
+import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mlkit.vision.barcode.common.Barcode;
 import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.common.InputImage;
 
-
-import java.util.Objects;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class BarcodeScanningActivity extends AppCompatActivity {
 
     private static final String TAG = "BarcodeScanningActivity"; // Tag for logging
+    // Detector calls allowed in flight at once, overlapping camera delivery with decoding
+    private static final int ANALYSIS_IN_FLIGHT = 2;
+    private static final long DEDUP_TTL_MS = 5000;
+    private static final int DEDUP_MAX_ENTRIES = 256;
 
     private PreviewView previewView;
+    private GraphicOverlay overlay;
+    private TextView resultLabel;
     private TextView resultText;
+    private ListView batchList;
+    private SwitchMaterial batchModeSwitch;
     private Button copyButton;
     private Button openLinkButton;
+    private Button profileButton;
     private ExecutorService cameraExecutor;
-    private boolean scanned = false; // Flag to prevent multiple scans immediately
-    private final Handler handler = new Handler(Looper.getMainLooper()); // Use main looper for UI updates
+    private ScanFeedback feedback; // Preloaded sound + cached vibrator
+    private ScanHistory history;
+    private FramePipeline<List<Barcode>> pipeline;
+    private final BarcodePayloadParser payloadParser = new BarcodePayloadParser();
+    private BarcodePayload currentPayload; // What the result card shows, for copy/open
+
+    // Scanner clients are built once per profile and reused across switches
+    private final EnumMap<BarcodeScanProfile, BarcodeScanner> scanners = new EnumMap<>(BarcodeScanProfile.class);
+    private boolean scannersClosed = false; // Guarded by scanners
+    private volatile BarcodeScanProfile profile = BarcodeScanProfile.ALL_FORMATS;
+    // Suppresses repeat reports of a code for DEDUP_TTL_MS after it was last in view
+    private final BarcodeDeduplicator deduplicator =
+            new BarcodeDeduplicator(DEDUP_TTL_MS, DEDUP_MAX_ENTRIES);
+
+    // Batch mode reports every code in a frame; the list holds each distinct code once per session
+    private boolean batchMode = false;
+    private final Set<String> batchKeys = new HashSet<>();
+    private ArrayAdapter<String> batchAdapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,7 +84,12 @@ public class BarcodeScanningActivity extends AppCompatActivity {
 
         // Initialize UI elements
         previewView = findViewById(R.id.preview_view);
+        overlay = findViewById(R.id.graphic_overlay);
+        resultLabel = findViewById(R.id.result_label);
         resultText = findViewById(R.id.result_text);
+        batchList = findViewById(R.id.batch_list);
+        batchModeSwitch = findViewById(R.id.batch_mode_switch);
+        profileButton = findViewById(R.id.profile_button);
         copyButton = findViewById(R.id.copy_button);
         openLinkButton = findViewById(R.id.open_link_button);
 
@@ -64,9 +97,18 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         openLinkButton.setEnabled(false);
         openLinkButton.setAlpha(0.5f); // Visually indicate disabled state
 
+        // Set up batch mode: a growing list of every distinct code instead of a single result
+        batchAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1);
+        batchList.setAdapter(batchAdapter);
+        batchModeSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> setBatchMode(isChecked));
+
+        // Cycle through the scanning profiles (formats + region of interest)
+        profileButton.setOnClickListener(v -> setProfile(profile.next()));
+
         // Set up Copy Button click listener
         copyButton.setOnClickListener(v -> {
-            String scannedData = resultText.getText().toString();
+            String scannedData = batchMode ? getBatchText()
+                    : currentPayload != null ? currentPayload.rawValue : resultText.getText().toString();
             if (!scannedData.isEmpty() && !scannedData.equals(getString(R.string.scan_prompt))) {
                 ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
                 ClipData clip = ClipData.newPlainText("barcode_data", scannedData);
@@ -77,31 +119,10 @@ public class BarcodeScanningActivity extends AppCompatActivity {
             }
         });
 
-        // Set up Open Link Button click listener to perform a Google search
+        // Open the scanned payload with the app that fits its type; plain text is searched
         openLinkButton.setOnClickListener(v -> {
-            // Trim whitespace from the scanned data before processing
-            String data = resultText.getText().toString().trim();
-            Log.d(TAG, "Attempting to search for: " + data);
-
-            if (!data.isEmpty() && !data.equals(getString(R.string.scan_prompt))) {
-                try {
-                    // Create an Intent for web search
-                    Intent intent = new Intent(Intent.ACTION_WEB_SEARCH);
-                    intent.putExtra(SearchManager.QUERY, data); // Set the search query
-
-                    // Verify that there's an app to handle this intent (e.g., a web browser)
-                    if (intent.resolveActivity(getPackageManager()) != null) {
-                        startActivity(intent);
-                        Toast.makeText(this," R.string.searching_google_message", Toast.LENGTH_SHORT).show();
-                        Log.d(TAG, "Successfully launched search intent for: " + data);
-                    } else {
-                        Toast.makeText(this, "R.string.no_app_to_handle_search_message", Toast.LENGTH_LONG).show();
-                        Log.w(TAG, "No app found to handle web search for: " + data);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to perform search: " + data, e);
-                    Toast.makeText(this," R.string.failed_to_search_message", Toast.LENGTH_LONG).show();
-                }
+            if (currentPayload != null) {
+                openPayload(currentPayload);
             } else {
                 Toast.makeText(this, "R.string.nothing_to_search_message", Toast.LENGTH_SHORT).show();
                 openLinkButton.setEnabled(false); // Just in case, disable it again
@@ -110,6 +131,9 @@ public class BarcodeScanningActivity extends AppCompatActivity {
             }
         });
 
+        feedback = new ScanFeedback(this);
+        history = ScanHistory.getInstance(this);
+
         // Initialize camera executor for background processing
         cameraExecutor = Executors.newSingleThreadExecutor();
         // Start camera preview and barcode analysis
@@ -133,54 +157,43 @@ public class BarcodeScanningActivity extends AppCompatActivity {
                 Preview preview = new Preview.Builder().build();
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-                // Set up the image analysis use case for barcode detection
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        // Using STRATEGY_DROP_AND_QUEUE as an alternative to STRATEGY_KEEP_LATEST
-                        // This strategy drops the oldest frame if the queue is full and adds the new frame.
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                // Route frames through the shared pipeline; it owns image conversion and release.
+                // The scanner is looked up per frame so profile switches apply immediately.
+                pipeline = new FramePipeline.Builder<List<Barcode>>(image -> getScanner(profile).process(image))
+                        .setResultListener((barcodes, frameInfo) -> {
+                            drawBarcodes(barcodes, frameInfo);
+
+                            if (batchMode) {
+                                handleBatch(barcodes);
+                                return;
+                            }
+
+                            // Report the first code that has not been seen recently; repeats are
+                            // suppressed by the cache instead of pausing the whole scanner. Every
+                            // code is marked, so the ones still in view stay suppressed too.
+                            Barcode firstNew = null;
+                            for (Barcode barcode : barcodes) {
+                                if (deduplicator.markIfNew(barcode.getRawValue(), barcode.getFormat())
+                                        && firstNew == null) {
+                                    firstNew = barcode;
+                                }
+                            }
+                            if (firstNew != null) {
+                                history.record(ScanRecord.barcode(firstNew.getRawValue(), firstNew.getFormat()));
+                                handleResult(payloadParser.parse(firstNew)); // Handle the scanned data
+                            }
+                        })
+                        .setErrorListener(e -> Log.e(TAG, "Barcode detection failed", e))
+                        .setMaxInFlight(ANALYSIS_IN_FLIGHT)
                         .build();
+                pipeline.setRegionOfInterest(profile.getRoiWidthFraction(), profile.getRoiHeightFraction());
 
-                // Get an instance of BarcodeScanner
-                BarcodeScanner scanner = BarcodeScanning.getClient();
+                // Set up the image analysis use case; the pipeline picks the queue depth it needs
+                ImageAnalysis imageAnalysis = pipeline.configure(new ImageAnalysis.Builder())
+                        .build();
 
                 // Set the analyzer for image analysis
-                imageAnalysis.setAnalyzer(cameraExecutor, image -> {
-                    // Only process if not already scanned to prevent rapid re-scans
-                    if (!scanned) {
-                        // Suppress lint warning for unsafe usage of ImageProxy.getImage()
-                        @SuppressWarnings("UnsafeOptInUsageError")
-                        InputImage inputImage = InputImage.fromMediaImage(
-                                Objects.requireNonNull(image.getImage()), image.getImageInfo().getRotationDegrees());
-
-                        // Process the image for barcodes
-                        scanner.process(inputImage)
-                                .addOnSuccessListener(barcodes -> {
-                                    if (!barcodes.isEmpty()) {
-                                        // If barcodes are detected, get the first one
-                                        Barcode barcode = barcodes.get(0);
-                                        scanned = true; // Set flag to true to pause further scanning
-                                        handleResult(barcode.getRawValue()); // Handle the scanned data
-
-                                        // Reset scan status after a delay to allow re-scanning
-                                        handler.postDelayed(() -> {
-                                            runOnUiThread(() -> {
-                                                resultText.setText(R.string.scan_prompt); // Reset text
-                                                openLinkButton.setEnabled(false); // Disable link button
-                                                openLinkButton.setAlpha(0.5f);
-                                            });
-                                            scanned = false; // Allow new scans
-                                        }, 3000); // Reset after 3 seconds
-                                    }
-                                    image.close(); // Close the image proxy to release resources
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Barcode detection failed", e);
-                                    image.close(); // Close the image proxy even on failure
-                                });
-                    } else {
-                        image.close(); // If already scanned, just close the image
-                    }
-                });
+                imageAnalysis.setAnalyzer(cameraExecutor, pipeline);
 
                 // Unbind any previously bound use cases
                 cameraProvider.unbindAll();
@@ -195,45 +208,185 @@ public class BarcodeScanningActivity extends AppCompatActivity {
     }
 
     /**
-     * Handles the result of a successful barcode scan.
-     * Updates the UI, plays a sound, and vibrates the device.
-     * @param data The raw value of the scanned barcode.
+     * Returns the scanner for the given profile, creating it on first use. Throws once the
+     * scanners are closed, so a frame still in the analyzer after onDestroy fails instead of
+     * running on a closed client or building a new one that is never closed.
      */
-    private void handleResult(String data) {
-        runOnUiThread(() -> {
-            resultText.setText(data); // Display scanned data
-
-            // Trim data before validation
-            String trimmedData = data.trim();
-            Log.d(TAG, "Handling result: " + trimmedData);
-
-            // Enable the search button if there is any non-empty scanned data
-            if (!trimmedData.isEmpty() && !trimmedData.equals(getString(R.string.scan_prompt))) {
-                openLinkButton.setEnabled(true);
-                openLinkButton.setAlpha(1.0f);
-                Log.d(TAG, "Result is not empty, enabling search button.");
-            } else {
-                openLinkButton.setEnabled(false);
-                openLinkButton.setAlpha(0.5f);
-                Log.d(TAG, "Result is empty or prompt, disabling search button.");
+    private BarcodeScanner getScanner(BarcodeScanProfile scanProfile) {
+        synchronized (scanners) {
+            if (scannersClosed) {
+                throw new IllegalStateException("Barcode scanners are closed");
             }
-        });
+            BarcodeScanner scanner = scanners.get(scanProfile);
+            if (scanner == null) {
+                scanner = BarcodeScanning.getClient(scanProfile.toScannerOptions());
+                scanners.put(scanProfile, scanner);
+            }
+            return scanner;
+        }
+    }
 
-        // Play notification sound
-        try {
-            MediaPlayer mediaPlayer = MediaPlayer.create(this, R.raw.notification);
-            if (mediaPlayer != null) {
-                mediaPlayer.start();
-                mediaPlayer.setOnCompletionListener(MediaPlayer::release); // Release media player after completion
+    /**
+     * Applies a scanning profile: restricts the formats searched and crops frames to its region.
+     */
+    private void setProfile(BarcodeScanProfile scanProfile) {
+        profile = scanProfile;
+        profileButton.setText(scanProfile.getLabelRes());
+        if (pipeline != null) {
+            pipeline.setRegionOfInterest(scanProfile.getRoiWidthFraction(), scanProfile.getRoiHeightFraction());
+        }
+        deduplicator.clear(); // Codes already in view are reported again under the new profile
+        overlay.clear();
+    }
+
+    /**
+     * Switches between single-result and batch scanning.
+     */
+    private void setBatchMode(boolean enabled) {
+        batchMode = enabled;
+        batchKeys.clear();
+        batchAdapter.clear();
+        deduplicator.clear(); // Codes seen under the other mode are reported again in this one
+        batchList.setVisibility(enabled ? View.VISIBLE : View.GONE);
+        resultText.setVisibility(enabled ? View.GONE : View.VISIBLE);
+        if (enabled) {
+            resultLabel.setText(getString(R.string.batch_count_label, 0));
+        } else {
+            resultLabel.setText(R.string.scanned_result_label);
+        }
+    }
+
+    /**
+     * Draws the bounding box of every barcode found in the frame.
+     */
+    private void drawBarcodes(List<Barcode> barcodes, FramePipeline.FrameInfo frameInfo) {
+        int imageWidth = frameInfo.getUprightWidth();
+        int imageHeight = frameInfo.getUprightHeight();
+        if (imageWidth != overlay.getImageWidth() || imageHeight != overlay.getImageHeight()) {
+            overlay.setCameraInfo(imageWidth, imageHeight, CameraSelector.LENS_FACING_BACK);
+        }
+
+        GraphicOverlay.Scene scene = overlay.beginScene();
+        for (Barcode barcode : barcodes) {
+            scene.add(new BarcodeGraphic(overlay, barcode, frameInfo.getCropLeft(), frameInfo.getCropTop()));
+        }
+        overlay.publish(scene);
+    }
+
+    /**
+     * Adds every barcode of the frame that is not in the batch list yet.
+     */
+    private void handleBatch(List<Barcode> barcodes) {
+        boolean added = false;
+        for (Barcode barcode : barcodes) {
+            String rawValue = barcode.getRawValue();
+            if (rawValue != null && batchKeys.add(barcode.getFormat() + ":" + rawValue)) {
+                batchAdapter.insert(rawValue, 0); // Newest first
+                history.record(ScanRecord.barcode(rawValue, barcode.getFormat()));
+                added = true;
+            }
+        }
+
+        if (added) {
+            resultLabel.setText(getString(R.string.batch_count_label, batchKeys.size()));
+            feedback.play(); // One confirmation per frame, however many codes it added
+        }
+    }
+
+    private String getBatchText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < batchAdapter.getCount(); i++) {
+            if (i > 0) {
+                text.append('\n');
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error playing notification sound", e);
+            text.append(batchAdapter.getItem(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Handles the result of a successful barcode scan.
+     * Updates the UI and plays the scan confirmation.
+     * @param payload The decoded payload of the scanned barcode.
+     */
+    private void handleResult(BarcodePayload payload) {
+        currentPayload = payload;
+        resultText.setText(payload.getSummary()); // Display the decoded fields
+        Log.d(TAG, "Handling " + payload.kind + " result: " + payload.rawValue);
+
+        // Enable the open button if there is any non-empty scanned data
+        boolean hasData = !payload.rawValue.trim().isEmpty();
+        openLinkButton.setEnabled(hasData);
+        openLinkButton.setAlpha(hasData ? 1.0f : 0.5f);
+
+        feedback.play();
+    }
+
+    /**
+     * Opens a payload with the app that fits its type, falling back to a web search.
+     */
+    private void openPayload(BarcodePayload payload) {
+        Intent intent;
+        switch (payload.kind) {
+            case URL:
+            case GEO:
+                intent = new Intent(Intent.ACTION_VIEW, Uri.parse(payload.actionUri));
+                break;
+            case EMAIL:
+            case SMS:
+                intent = new Intent(Intent.ACTION_SENDTO, Uri.parse(payload.actionUri));
+                if (payload.get(BarcodePayload.FIELD_SUBJECT) != null) {
+                    intent.putExtra(Intent.EXTRA_SUBJECT, payload.get(BarcodePayload.FIELD_SUBJECT));
+                }
+                if (payload.get(BarcodePayload.FIELD_MESSAGE) != null) {
+                    intent.putExtra(Intent.EXTRA_TEXT, payload.get(BarcodePayload.FIELD_MESSAGE));
+                    intent.putExtra("sms_body", payload.get(BarcodePayload.FIELD_MESSAGE));
+                }
+                break;
+            case PHONE:
+                intent = new Intent(Intent.ACTION_DIAL, Uri.parse(payload.actionUri));
+                break;
+            case CONTACT:
+                intent = new Intent(ContactsContract.Intents.Insert.ACTION)
+                        .setType(ContactsContract.RawContacts.CONTENT_TYPE)
+                        .putExtra(ContactsContract.Intents.Insert.NAME, payload.get(BarcodePayload.FIELD_NAME))
+                        .putExtra(ContactsContract.Intents.Insert.COMPANY, payload.get(BarcodePayload.FIELD_ORGANIZATION))
+                        .putExtra(ContactsContract.Intents.Insert.PHONE, payload.get(BarcodePayload.FIELD_PHONE))
+                        .putExtra(ContactsContract.Intents.Insert.EMAIL, payload.get(BarcodePayload.FIELD_EMAIL));
+                break;
+            case CALENDAR:
+                intent = new Intent(Intent.ACTION_INSERT, CalendarContract.Events.CONTENT_URI)
+                        .putExtra(CalendarContract.Events.TITLE, payload.get(BarcodePayload.FIELD_TITLE))
+                        .putExtra(CalendarContract.Events.EVENT_LOCATION, payload.get(BarcodePayload.FIELD_LOCATION));
+                if (payload.startMillis >= 0) {
+                    intent.putExtra(CalendarContract.EXTRA_EVENT_BEGIN_TIME, payload.startMillis);
+                }
+                if (payload.endMillis >= 0) {
+                    intent.putExtra(CalendarContract.EXTRA_EVENT_END_TIME, payload.endMillis);
+                }
+                break;
+            case WIFI:
+                // Joining needs system approval, so hand over the password and open Wi-Fi settings
+                String password = payload.get(BarcodePayload.FIELD_PASSWORD);
+                if (password != null) {
+                    ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+                    clipboard.setPrimaryClip(ClipData.newPlainText("wifi_password", password));
+                    Toast.makeText(this, R.string.wifi_password_copied_message, Toast.LENGTH_SHORT).show();
+                }
+                intent = new Intent(Settings.ACTION_WIFI_SETTINGS);
+                break;
+            default:
+                intent = new Intent(Intent.ACTION_WEB_SEARCH);
+                intent.putExtra(SearchManager.QUERY, payload.rawValue.trim()); // Set the search query
+                break;
         }
 
-        // Vibrate the device
-        Vibrator vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
-        if (vibrator != null && vibrator.hasVibrator()) {
-            vibrator.vibrate(300); // Vibrate for 300 milliseconds
+        try {
+            startActivity(intent);
+            Log.d(TAG, "Opened " + payload.kind + " payload: " + payload.rawValue);
+        } catch (ActivityNotFoundException e) {
+            Log.w(TAG, "No app found to open " + payload.kind + " payload: " + payload.rawValue);
+            Toast.makeText(this, R.string.no_app_for_entity, Toast.LENGTH_LONG).show();
         }
     }
 
@@ -244,7 +397,18 @@ public class BarcodeScanningActivity extends AppCompatActivity {
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
-        // Remove any pending callbacks from the handler
-        handler.removeCallbacksAndMessages(null);
+        synchronized (scanners) {
+            scannersClosed = true;
+            for (BarcodeScanner scanner : scanners.values()) {
+                scanner.close();
+            }
+            scanners.clear();
+        }
+        if (feedback != null) {
+            feedback.release();
+        }
+        if (history != null) {
+            history.flushAsync(); // Don't leave the last partial batch waiting on the timer
+        }
     }
 }
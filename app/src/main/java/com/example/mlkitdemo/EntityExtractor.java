@@ -0,0 +1,160 @@
+package com.example.mlkitdemo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental extraction of actionable entities (phone numbers, emails, URLs, dates and amounts)
+ * from live OCR transcripts.
+ *
+ * Every entity type is one alternative of a single precompiled pattern, so a line goes through
+ * one matcher instead of one per type. The regex engine still tries each alternative at every
+ * start position, so the cost per line grows with the number of types. Results are cached per
+ * line: live transcripts mostly repeat the lines of the previous frame, so only lines that were
+ * not seen recently are scanned at all.
+ *
+ * Not thread-safe; call from the thread pipeline results are delivered on.
+ */
+public class EntityExtractor {
+    private static final int MAX_CACHED_LINES = 128;
+    private static final int MIN_PHONE_DIGITS = 7;
+
+    /**
+     * Entity types, in the order their alternatives appear in {@link #ENTITY_PATTERN}. Earlier
+     * types win when several could match at the same position, e.g. an email over a URL.
+     */
+    public enum Type {
+        EMAIL,
+        URL,
+        DATE,
+        AMOUNT,
+        PHONE
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private static final String MONTH = "(?:jan|feb|mar|apr|may|jun|jul|aug|sep|sept|oct|nov|dec)[a-z]*\\.?";
+
+    // One capturing group per Type, in ordinal order; everything inside is non-capturing
+    private static final Pattern ENTITY_PATTERN = Pattern.compile(
+            "([a-z0-9._%+-]+@[a-z0-9-]+(?:\\.[a-z0-9-]+)*\\.[a-z]{2,})"
+                    + "|((?:https?://|www\\.)[^\\s]*[^\\s.,;:!?)\"']"
+                    + "|[a-z0-9-]+(?:\\.[a-z0-9-]+)*\\.(?:com|org|net|io|dev|edu|gov|app|co)(?:/[^\\s]*[^\\s.,;:!?)\"'])?)"
+                    + "|((?<![\\d/.-])(?:\\d{4}-\\d{1,2}-\\d{1,2}|\\d{1,2}[/.-]\\d{1,2}[/.-]\\d{2,4})(?![\\d/-]|\\.\\d)"
+                    + "|\\d{1,2}\\s" + MONTH + ",?\\s\\d{4}|" + MONTH + "\\s\\d{1,2},?\\s\\d{4})"
+                    // Written currency tokens must start a word, so "Mrs 100" or "hrs 12" are not amounts
+                    + "|((?:[$\u20AC\u00A3\u00A5\u20B9]|\\b(?:rs\\.?|inr))\\s?\\d{1,3}(?:[,.]\\d{3})*(?:[.,]\\d{1,2})?"
+                    + "|(?<![\\d.,])\\d{1,3}(?:[,.]\\d{3})*(?:[.,]\\d{1,2})?\\s?(?:usd|eur|gbp|pkr|inr))"
+                    + "|((?<![\\w+])\\+?\\(?\\d[\\d\\s().-]{5,}\\d(?!\\d))",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * One extracted entity. Equal entities are collapsed, so a value found on several lines is
+     * reported once.
+     */
+    public static final class Entity {
+        public final Type type;
+        public final String value;
+
+        Entity(Type type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entity)) {
+                return false;
+            }
+            Entity other = (Entity) o;
+            return type == other.type && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, value);
+        }
+    }
+
+    private final Matcher matcher = ENTITY_PATTERN.matcher("");
+    private final Map<String, List<Entity>> lineCache =
+            new LinkedHashMap<String, List<Entity>>(MAX_CACHED_LINES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<Entity>> eldest) {
+                    return size() > MAX_CACHED_LINES;
+                }
+            };
+
+    private String lastText;
+    private List<Entity> lastEntities = Collections.emptyList();
+
+    /**
+     * Returns the entities in {@code text}, in reading order and without duplicates. Only lines
+     * not seen recently are scanned.
+     */
+    public List<Entity> extract(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (text.equals(lastText)) {
+            return lastEntities;
+        }
+
+        Set<Entity> entities = new LinkedHashSet<>();
+        for (String line : text.split("\n")) {
+            List<Entity> lineEntities = lineCache.get(line);
+            if (lineEntities == null) {
+                lineEntities = scanLine(line);
+                lineCache.put(line, lineEntities);
+            }
+            entities.addAll(lineEntities);
+        }
+
+        lastText = text;
+        lastEntities = Collections.unmodifiableList(new ArrayList<>(entities));
+        return lastEntities;
+    }
+
+    private List<Entity> scanLine(String line) {
+        List<Entity> found = null;
+        matcher.reset(line);
+        while (matcher.find()) {
+            for (Type type : TYPES) {
+                String value = matcher.group(type.ordinal() + 1);
+                if (value == null) {
+                    continue;
+                }
+                if (type == Type.PHONE && countDigits(value) < MIN_PHONE_DIGITS) {
+                    break;
+                }
+                if (found == null) {
+                    found = new ArrayList<>();
+                }
+                found.add(new Entity(type, value.trim()));
+                break;
+            }
+        }
+        return found != null ? found : Collections.emptyList();
+    }
+
+    private static int countDigits(String value) {
+        int digits = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                digits++;
+            }
+        }
+        return digits;
+    }
+}
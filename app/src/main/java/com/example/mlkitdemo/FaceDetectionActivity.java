@@ -3,29 +3,22 @@ package com.example.mlkitdemo;
 import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Size;
 import android.widget.Button;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
-import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceDetection;
-import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -40,13 +33,17 @@ public class FaceDetectionActivity extends AppCompatActivity {
     private Button captureFrameButton;
     private Button switchCameraButton;
     private ExecutorService cameraExecutor;
-    private FaceDetector faceDetector;
-    private boolean freeze = false;
+    private FaceDetectorGovernor faceDetector;
+    private final FaceTracker faceTracker = new FaceTracker();
+    private FramePipeline<List<TrackedFace>> facePipeline;
+    private volatile boolean freeze = false;
     private int currentLensFacing = CameraSelector.LENS_FACING_FRONT; // Default to front camera
     private ProcessCameraProvider cameraProvider;
 
     // Fixed resolution for analysis to ensure consistent coordinates
     private static final Size ANALYSIS_RESOLUTION = new Size(640, 480);
+    // Detector options are stepped down until detection keeps up with this rate
+    private static final int TARGET_FPS = 15;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -61,16 +58,16 @@ public class FaceDetectionActivity extends AppCompatActivity {
 
         cameraExecutor = Executors.newSingleThreadExecutor();
 
-        // Configure the face detector with better options for detection
-        FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
-                .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
-                .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
-                .setMinFaceSize(0.15f) // Increase detection sensitivity
-                .enableTracking() // Enable face tracking for smoother detection
-                .build();
+        // Tracks faces on every frame and classifies them on a sample of frames, sampling less
+        // often when the device cannot keep up with the target rate
+        faceDetector = new FaceDetectorGovernor(TARGET_FPS);
 
-        faceDetector = FaceDetection.getClient(options);
+        facePipeline = new FramePipeline.Builder<List<TrackedFace>>(faceDetector)
+                .setFrameFilter(imageProxy -> !freeze)
+                .setMetricsListener(faceDetector)
+                .setResultListener(this::processFaceDetectionResults)
+                .setErrorListener(e -> Log.e(TAG, "Face detection failed", e))
+                .build();
 
         captureFrameButton.setOnClickListener(v -> {
             freeze = !freeze;
@@ -157,10 +154,12 @@ public class FaceDetectionActivity extends AppCompatActivity {
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
-        imageAnalysis.setAnalyzer(cameraExecutor, this::processImageProxy);
+        imageAnalysis.setAnalyzer(cameraExecutor, facePipeline);
 
         try {
             // Bind all use cases to the lifecycle
+            // The overlay takes the buffer size and rotation from the first result, so it never
+            // maps faces with a guessed, unrotated size first
             Camera camera = cameraProvider.bindToLifecycle(
                     this,
                     cameraSelector,
@@ -168,14 +167,6 @@ public class FaceDetectionActivity extends AppCompatActivity {
                     imageAnalysis
             );
 
-            // Instead of waiting for previewView layout, we set the overlay dimensions immediately
-            // using our fixed analysis resolution
-            overlay.setCameraInfo(
-                    ANALYSIS_RESOLUTION.getWidth(),
-                    ANALYSIS_RESOLUTION.getHeight(),
-                    currentLensFacing
-            );
-
             Log.d(TAG, "Camera bound successfully with analysis resolution: " +
                     ANALYSIS_RESOLUTION.getWidth() + "x" + ANALYSIS_RESOLUTION.getHeight());
 
@@ -189,85 +180,51 @@ public class FaceDetectionActivity extends AppCompatActivity {
         }
     }
 
-    @OptIn(markerClass = ExperimentalGetImage.class)
-    private void processImageProxy(ImageProxy imageProxy) {
-        if (freeze) {
-            imageProxy.close();
-            return;
-        }
-
-        try {
-            if (imageProxy.getImage() == null) {
-                imageProxy.close();
-                return;
-            }
-
-            int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
-            Log.d(TAG, "Processing image with rotation: " + rotationDegrees);
-
-            @SuppressWarnings("UnsafeOptInUsageError")
-            InputImage inputImage = InputImage.fromMediaImage(
-                    imageProxy.getImage(),
-                    rotationDegrees
-            );
-
-            // Get actual dimensions of the image being processed
-            int actualWidth = imageProxy.getWidth();
-            int actualHeight = imageProxy.getHeight();
-            Log.d(TAG, "Image dimensions: " + actualWidth + "x" + actualHeight);
-
-            // Update overlay dimensions if they differ from what was set initially
-            if (actualWidth != overlay.getImageWidth() || actualHeight != overlay.getImageHeight()) {
-                Log.d(TAG, "Updating overlay dimensions to match image");
-                overlay.setCameraInfo(actualWidth, actualHeight, currentLensFacing);
+    private void processFaceDetectionResults(List<TrackedFace> faces, FramePipeline.FrameInfo frameInfo) {
+        // Faces are in upright coordinates; the overlay swaps the buffer size for sideways
+        // rotations and only rebuilds its transform when something changed
+        overlay.setCameraInfo(frameInfo.getWidth(), frameInfo.getHeight(),
+                frameInfo.getRotationDegrees(), currentLensFacing);
+
+        // Smooth each tracked face by when its frame was captured, not when detection finished,
+        // so varying latency does not read as motion. Graphics extrapolate from the tracks until
+        // the next result arrives, on the same clock the overlay animates with.
+        long captureTimeMs = toUptimeMillis(frameInfo.getTimestampNanos());
+        List<FaceTracker.Track> tracks = faceTracker.update(faces, captureTimeMs);
+
+        // Build the whole frame, then hand it to the overlay at once. Graphics are reused from
+        // the scene being refilled, never from the one on screen.
+        GraphicOverlay.Scene scene = overlay.beginScene();
+        for (int i = 0; i < tracks.size(); i++) {
+            FaceGraphic faceGraphic = scene.recycle(FaceGraphic.class);
+            if (faceGraphic == null) {
+                faceGraphic = new FaceGraphic(overlay);
             }
-
-            faceDetector.process(inputImage)
-                    .addOnSuccessListener(faces -> {
-                        Log.d(TAG, "Faces detected: " + faces.size());
-                        processFaceDetectionResults(faces, imageProxy);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Face detection failed", e);
-                    })
-                    .addOnCompleteListener(task -> {
-                        imageProxy.close();
-                    });
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing image", e);
-            imageProxy.close();
+            faceGraphic.bind(tracks.get(i));
+            scene.add(faceGraphic);
         }
+        overlay.publish(scene);
     }
 
-    private void processFaceDetectionResults(List<Face> faces, ImageProxy imageProxy) {
-        int imageWidth = imageProxy.getWidth();
-        int imageHeight = imageProxy.getHeight();
-        int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
-
-        // Clear previous detections
-        overlay.clear();
-
-        // Draw faces
-        for (Face face : faces) {
-            FaceGraphic faceGraphic = new FaceGraphic(
-                    overlay,
-                    face,
-                    imageWidth,
-                    imageHeight,
-                    rotationDegrees,
-                    currentLensFacing
-            );
-            overlay.add(faceGraphic);
+    /**
+     * Converts a frame timestamp to the {@link SystemClock#uptimeMillis()} clock. Cameras stamp
+     * frames with elapsed realtime on most devices and with uptime on others; a stamp later than
+     * the current uptime can only be elapsed realtime. Either way the conversion is a fixed
+     * offset, so the time between frames is kept.
+     */
+    private static long toUptimeMillis(long timestampNanos) {
+        long uptimeNanos = SystemClock.uptimeMillis() * 1_000_000L;
+        if (timestampNanos > uptimeNanos) {
+            timestampNanos -= SystemClock.elapsedRealtimeNanos() - uptimeNanos;
         }
-
-        // Force redraw
-        overlay.postInvalidate();
+        return timestampNanos / 1_000_000L;
     }
 
     private void switchCamera() {
         currentLensFacing = (currentLensFacing == CameraSelector.LENS_FACING_FRONT)
                 ? CameraSelector.LENS_FACING_BACK
                 : CameraSelector.LENS_FACING_FRONT;
+        faceTracker.clear(); // Tracks from the other camera would be mirrored
 
         Log.d(TAG, "Switching camera to: " +
                 (currentLensFacing == CameraSelector.LENS_FACING_FRONT ? "FRONT" : "BACK"));
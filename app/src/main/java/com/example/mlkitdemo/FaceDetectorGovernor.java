@@ -0,0 +1,308 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceDetection;
+import com.google.mlkit.vision.face.FaceDetector;
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Two-tier face detector that trades detail for speed to hold a target frame rate.
+ *
+ * A fast tracking detector runs on every frame and provides the boxes and tracking IDs. A second
+ * detector with landmarks and classification runs on the same image only every few frames, or
+ * when a tracking ID appears that it has not looked at yet. Its faces are matched to the tracked
+ * ones by box overlap, and their attributes are kept per tracking ID until the next sample, so
+ * boxes update at the full rate while classification runs at a fraction of it.
+ *
+ * It is both the pipeline's detector and its metrics listener: every processed frame's latency
+ * goes into a rolling window, and when the window's average exceeds the frame budget the
+ * governor steps down to a cheaper {@link Preset}; when it stays well under the budget it steps
+ * back up. Presets first sample less often, then make the second detector itself cheaper
+ * ({@link DetailMode}: accurate with everything, accurate with landmarks only, fast with landmarks
+ * only), and finally drop it. Switches only happen once a full window has been measured on the
+ * current preset, and a richer preset that was already too slow is only retried after
+ * {@link #RETRY_SLOWER_MS}, so the mode does not oscillate. Each {@link FaceDetector} client is
+ * built once, on first use, and switching never rebinds the camera.
+ */
+public class FaceDetectorGovernor implements FramePipeline.Detector<List<TrackedFace>>, FramePipeline.MetricsListener {
+    private static final String TAG = "FaceDetectorGovernor";
+    private static final int WINDOW_SIZE = 15;
+    // Step up only if the current preset leaves this much of the budget unused
+    private static final float UPGRADE_HEADROOM = 0.6f;
+    private static final long RETRY_SLOWER_MS = 10_000;
+    private static final float MIN_FACE_SIZE = 0.15f;
+    private static final float MATCH_IOU = 0.3f;
+
+    /**
+     * Options of the second, detail detector, richest first.
+     */
+    public enum DetailMode {
+        ACCURATE_ALL(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE,
+                FaceDetectorOptions.LANDMARK_MODE_ALL, FaceDetectorOptions.CLASSIFICATION_MODE_ALL),
+        ACCURATE_LANDMARKS(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE,
+                FaceDetectorOptions.LANDMARK_MODE_ALL, FaceDetectorOptions.CLASSIFICATION_MODE_NONE),
+        FAST_LANDMARKS(FaceDetectorOptions.PERFORMANCE_MODE_FAST,
+                FaceDetectorOptions.LANDMARK_MODE_ALL, FaceDetectorOptions.CLASSIFICATION_MODE_NONE);
+
+        private final int performanceMode;
+        private final int landmarkMode;
+        private final int classificationMode;
+
+        DetailMode(int performanceMode, int landmarkMode, int classificationMode) {
+            this.performanceMode = performanceMode;
+            this.landmarkMode = landmarkMode;
+            this.classificationMode = classificationMode;
+        }
+
+        FaceDetectorOptions toOptions() {
+            return new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(performanceMode)
+                    .setLandmarkMode(landmarkMode)
+                    .setClassificationMode(classificationMode)
+                    .setContourMode(FaceDetectorOptions.CONTOUR_MODE_NONE)
+                    .setMinFaceSize(MIN_FACE_SIZE)
+                    .build();
+        }
+    }
+
+    /**
+     * Which detail detector runs and how often, richest first. An interval of 0 means never.
+     */
+    public enum Preset {
+        ACCURATE_ALL_EVERY_5_FRAMES(DetailMode.ACCURATE_ALL, 5),
+        ACCURATE_ALL_EVERY_15_FRAMES(DetailMode.ACCURATE_ALL, 15),
+        ACCURATE_LANDMARKS_EVERY_15_FRAMES(DetailMode.ACCURATE_LANDMARKS, 15),
+        FAST_LANDMARKS_EVERY_15_FRAMES(DetailMode.FAST_LANDMARKS, 15),
+        TRACKING_ONLY(null, 0);
+
+        private final DetailMode detailMode;
+        private final int detailInterval;
+
+        Preset(DetailMode detailMode, int detailInterval) {
+            this.detailMode = detailMode;
+            this.detailInterval = detailInterval;
+        }
+    }
+
+    private static final Preset[] PRESETS = Preset.values();
+
+    private final long frameBudgetMs;
+    private FaceDetector trackingClient;
+    private final FaceDetector[] detailClients = new FaceDetector[DetailMode.values().length];
+    private volatile Preset current = Preset.ACCURATE_ALL_EVERY_5_FRAMES;
+    private boolean closed = false;
+
+    // Touched only from the thread pipeline results are delivered on
+    private final long[] window = new long[WINDOW_SIZE];
+    private int windowCount = 0;
+    private long windowSum = 0;
+    private final long[] lastAverageMs = new long[PRESETS.length];
+    private final long[] lastTooSlowAtMs = new long[PRESETS.length];
+    private final Map<Integer, TrackedFace.Attributes> attributesById = new HashMap<>();
+    private final Set<Integer> sampledIds = new HashSet<>();
+    private int framesSinceDetail = Integer.MAX_VALUE / 2;
+
+    public FaceDetectorGovernor(int targetFps) {
+        this.frameBudgetMs = 1000L / targetFps;
+    }
+
+    public Preset getPreset() {
+        return current;
+    }
+
+    @Override
+    public Task<List<TrackedFace>> process(InputImage image) {
+        FaceDetector tracker = getTrackingClient();
+        // Continuations run on the main thread; the image stays open until the returned task ends
+        return tracker.process(image).<List<TrackedFace>>continueWithTask(tracked -> {
+            if (!tracked.isSuccessful()) {
+                return Tasks.forException(tracked.getException() != null
+                        ? tracked.getException()
+                        : new IllegalStateException("Face tracking was cancelled"));
+            }
+            List<Face> faces = tracked.getResult();
+            if (!needsDetail(faces)) {
+                return Tasks.forResult(attach(faces));
+            }
+
+            DetailMode detailMode = current.detailMode;
+            framesSinceDetail = 0;
+            for (Face face : faces) {
+                if (face.getTrackingId() != null) {
+                    sampledIds.add(face.getTrackingId());
+                }
+            }
+            return getDetailClient(detailMode).process(image).continueWith(detail -> {
+                if (detail.isSuccessful()) {
+                    matchAttributes(faces, detail.getResult());
+                } else {
+                    Log.w(TAG, "Face classification pass failed", detail.getException());
+                }
+                return attach(faces);
+            });
+        });
+    }
+
+    @Override
+    public void onFrameProcessed(FramePipeline.FrameInfo frameInfo, long latencyMs) {
+        int slot = windowCount % WINDOW_SIZE;
+        if (windowCount >= WINDOW_SIZE) {
+            windowSum -= window[slot]; // Oldest sample leaves the window
+        }
+        window[slot] = latencyMs;
+        windowSum += latencyMs;
+        windowCount++;
+        if (windowCount < WINDOW_SIZE) {
+            return; // Not enough samples on this preset yet
+        }
+
+        long averageMs = windowSum / WINDOW_SIZE;
+        int index = current.ordinal();
+        lastAverageMs[index] = averageMs;
+        long now = SystemClock.elapsedRealtime();
+
+        if (averageMs > frameBudgetMs && index < PRESETS.length - 1) {
+            lastTooSlowAtMs[index] = now;
+            switchTo(PRESETS[index + 1], averageMs);
+        } else if (averageMs < frameBudgetMs * UPGRADE_HEADROOM && index > 0) {
+            Preset richer = PRESETS[index - 1];
+            boolean knownTooSlow = lastAverageMs[richer.ordinal()] > frameBudgetMs
+                    && now - lastTooSlowAtMs[richer.ordinal()] < RETRY_SLOWER_MS;
+            if (!knownTooSlow) {
+                switchTo(richer, averageMs);
+            }
+        }
+    }
+
+    /**
+     * Closes every detector client that was built.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (trackingClient != null) {
+            trackingClient.close();
+            trackingClient = null;
+        }
+        for (int i = 0; i < detailClients.length; i++) {
+            if (detailClients[i] != null) {
+                detailClients[i].close();
+                detailClients[i] = null;
+            }
+        }
+    }
+
+    private boolean needsDetail(List<Face> faces) {
+        framesSinceDetail++;
+        int interval = current.detailInterval;
+        if (interval == 0 || current.detailMode == null || faces.isEmpty()) {
+            return false;
+        }
+        if (framesSinceDetail >= interval) {
+            return true;
+        }
+        for (Face face : faces) {
+            Integer id = face.getTrackingId();
+            if (id != null && !sampledIds.contains(id)) {
+                return true; // A face the classifier has not looked at yet
+            }
+        }
+        return false;
+    }
+
+    private void matchAttributes(List<Face> tracked, List<Face> detailed) {
+        for (Face detailFace : detailed) {
+            Face best = null;
+            float bestIou = MATCH_IOU;
+            for (Face face : tracked) {
+                float iou = intersectionOverUnion(face.getBoundingBox(), detailFace.getBoundingBox());
+                if (face.getTrackingId() != null && iou >= bestIou) {
+                    bestIou = iou;
+                    best = face;
+                }
+            }
+            if (best != null) {
+                attributesById.put(best.getTrackingId(), new TrackedFace.Attributes(detailFace));
+            }
+        }
+    }
+
+    private List<TrackedFace> attach(List<Face> faces) {
+        Set<Integer> visible = new HashSet<>();
+        List<TrackedFace> result = new ArrayList<>(faces.size());
+        for (Face face : faces) {
+            Integer id = face.getTrackingId();
+            if (id != null) {
+                visible.add(id);
+            }
+            result.add(new TrackedFace(face, id != null ? attributesById.get(id) : null));
+        }
+        // Forget faces that left the frame; a returning face gets a new ID and a new sample
+        attributesById.keySet().retainAll(visible);
+        sampledIds.retainAll(visible);
+        return result;
+    }
+
+    private static float intersectionOverUnion(Rect a, Rect b) {
+        int left = Math.max(a.left, b.left);
+        int top = Math.max(a.top, b.top);
+        int right = Math.min(a.right, b.right);
+        int bottom = Math.min(a.bottom, b.bottom);
+        if (right <= left || bottom <= top) {
+            return 0f;
+        }
+        float intersection = (float) (right - left) * (bottom - top);
+        float union = (float) a.width() * a.height() + (float) b.width() * b.height() - intersection;
+        return union > 0 ? intersection / union : 0f;
+    }
+
+    private void switchTo(Preset preset, long averageMs) {
+        Log.d(TAG, "Average detector latency " + averageMs + " ms against a " + frameBudgetMs
+                + " ms budget, switching " + current + " -> " + preset);
+        current = preset;
+        windowCount = 0;
+        windowSum = 0;
+    }
+
+    private synchronized FaceDetector getTrackingClient() {
+        if (closed) {
+            throw new IllegalStateException("Face detector governor is closed");
+        }
+        if (trackingClient == null) {
+            trackingClient = FaceDetection.getClient(new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
+                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_NONE)
+                    .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_NONE)
+                    .setContourMode(FaceDetectorOptions.CONTOUR_MODE_NONE)
+                    .setMinFaceSize(MIN_FACE_SIZE)
+                    .enableTracking()
+                    .build());
+        }
+        return trackingClient;
+    }
+
+    private synchronized FaceDetector getDetailClient(DetailMode mode) {
+        if (closed) {
+            throw new IllegalStateException("Face detector governor is closed");
+        }
+        FaceDetector client = detailClients[mode.ordinal()];
+        if (client == null) {
+            client = FaceDetection.getClient(mode.toOptions());
+            detailClients[mode.ordinal()] = client;
+        }
+        return client;
+    }
+}
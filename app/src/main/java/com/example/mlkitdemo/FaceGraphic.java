@@ -3,21 +3,17 @@ package com.example.mlkitdemo;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PointF;
-import android.graphics.Rect;
 import android.graphics.RectF;
-import android.util.Log;
-
-import androidx.camera.core.CameraSelector;
-
-import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceLandmark;
+import android.view.animation.AnimationUtils;
 
 /**
  * Graphic instance for rendering face position, orientation, landmarks, etc.
+ *
+ * Instances are pooled and re-bound to a tracked face each frame with {@link #bind}, so drawing
+ * allocates nothing: paints are shared, geometry is preallocated, and the probability labels are
+ * only rebuilt when their rounded percentages change.
  */
 public class FaceGraphic extends GraphicOverlay.Graphic {
-    private static final String TAG = "FaceGraphic";
     private static final float BOX_STROKE_WIDTH = 8.0f;
     private static final float ID_TEXT_SIZE = 40.0f;
     private static final float LANDMARK_RADIUS = 6.0f;
@@ -27,53 +23,46 @@ public class FaceGraphic extends GraphicOverlay.Graphic {
     private static final int TEXT_COLOR = Color.parseColor("#FFFFFF"); // White
     private static final int LANDMARK_COLOR = Color.parseColor("#FF5722"); // Material Deep Orange
 
-    private final Paint faceBoxPaint;
-    private final Paint faceTextPaint;
-    private final Paint landmarkPaint;
-
-    private final Face face;
-    private final int imageWidth;
-    private final int imageHeight;
-    private final int rotationDegrees;
-    private final int lensFacing;
-
-    public FaceGraphic(
-            GraphicOverlay overlay,
-            Face face,
-            int imageWidth,
-            int imageHeight,
-            int rotationDegrees,
-            int lensFacing) {
-        super(overlay);
+    // Paints are only used on the UI thread, so every graphic can share them
+    private static final Paint faceBoxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final Paint faceTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final Paint landmarkPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
-        this.face = face;
-        this.imageWidth = imageWidth;
-        this.imageHeight = imageHeight;
-        this.rotationDegrees = rotationDegrees;
-        this.lensFacing = lensFacing;
-
-        // Initialize paints for face annotations
-        faceBoxPaint = new Paint();
+    static {
         faceBoxPaint.setColor(BOX_COLOR);
         faceBoxPaint.setStyle(Paint.Style.STROKE);
         faceBoxPaint.setStrokeWidth(BOX_STROKE_WIDTH);
-        faceBoxPaint.setAntiAlias(true);
 
-        faceTextPaint = new Paint();
         faceTextPaint.setColor(TEXT_COLOR);
         faceTextPaint.setTextSize(ID_TEXT_SIZE);
         faceTextPaint.setShadowLayer(5.0f, 0, 0, Color.BLACK); // Add shadow for better visibility
-        faceTextPaint.setAntiAlias(true);
 
-        landmarkPaint = new Paint();
         landmarkPaint.setColor(LANDMARK_COLOR);
         landmarkPaint.setStyle(Paint.Style.FILL);
-        landmarkPaint.setAntiAlias(true);
+    }
+
+    private FaceTracker.Track face;
+    private final float[] landmarkPoints = new float[TrackedFace.Attributes.LANDMARK_TYPES.length * 2];
+    private final RectF imageBox = new RectF();
+    private final RectF rectF = new RectF();
+    private long lastDrawTimeMs;
 
-        // Log the face bounding box for debugging
-        Log.d(TAG, "Face bounding box: " + face.getBoundingBox().toString());
-        Log.d(TAG, "Image dimensions: " + imageWidth + "x" + imageHeight);
-        Log.d(TAG, "Rotation: " + rotationDegrees);
+    // Labels are rebuilt only when a rounded percentage changes
+    private int smilePercent = -1;
+    private int leftEyePercent = -1;
+    private int rightEyePercent = -1;
+    private String smileText;
+    private String eyesText;
+
+    public FaceGraphic(GraphicOverlay overlay) {
+        super(overlay);
+    }
+
+    /**
+     * Points this graphic at the face to draw from the next frame on.
+     */
+    public void bind(FaceTracker.Track face) {
+        this.face = face;
     }
 
     @Override
@@ -82,71 +71,64 @@ public class FaceGraphic extends GraphicOverlay.Graphic {
             return;
         }
 
-        // Get face bounds
-        Rect boundingBox = face.getBoundingBox();
-
-        // Adjust for rotation if needed
-        float left = boundingBox.left;
-        float top = boundingBox.top;
-        float right = boundingBox.right;
-        float bottom = boundingBox.bottom;
+        // Smoothed face bounds, moved forward to the frame being drawn
+        lastDrawTimeMs = AnimationUtils.currentAnimationTimeMillis();
+        face.predictBox(lastDrawTimeMs, imageBox);
 
-        // Transform it to overlay coordinates
-        RectF rectF = new RectF(
-                translateX(left),
-                translateY(top),
-                translateX(right),
-                translateY(bottom)
-        );
-
-        // Log transformed coordinates for debugging
-        Log.d(TAG, "Original box: " + boundingBox.toString());
-        Log.d(TAG, "Transformed box: " + rectF.toString());
+        // Transform it to overlay coordinates; mapRect keeps it sorted when mirrored
+        rectF.set(imageBox);
+        mapRect(rectF);
 
         // Draw bounding box
         canvas.drawRect(rectF, faceBoxPaint);
 
-        // Calculate face attributes probabilities
-        float smileProb = face.getSmilingProbability() != null ? face.getSmilingProbability() : 0;
-        float leftEyeOpenProb = face.getLeftEyeOpenProbability() != null ? face.getLeftEyeOpenProbability() : 0;
-        float rightEyeOpenProb = face.getRightEyeOpenProbability() != null ? face.getRightEyeOpenProbability() : 0;
-
-        // Format text with emojis for better visual representation
-        String smileText = String.format("😊 %.0f%%", smileProb * 100);
-        String eyesText = String.format("👁️ L:%.0f%% R:%.0f%%", leftEyeOpenProb * 100, rightEyeOpenProb * 100);
-
-        // Draw face attributes
-        canvas.drawText(smileText, rectF.left, rectF.top - 30, faceTextPaint);
-        canvas.drawText(eyesText, rectF.left, rectF.top - 80, faceTextPaint);
-
-        // Draw key landmarks
-        drawLandmarkPoint(canvas, FaceLandmark.LEFT_EYE);
-        drawLandmarkPoint(canvas, FaceLandmark.RIGHT_EYE);
-        drawLandmarkPoint(canvas, FaceLandmark.NOSE_BASE);
-        drawLandmarkPoint(canvas, FaceLandmark.LEFT_CHEEK);
-        drawLandmarkPoint(canvas, FaceLandmark.RIGHT_CHEEK);
-        drawLandmarkPoint(canvas, FaceLandmark.MOUTH_LEFT);
-        drawLandmarkPoint(canvas, FaceLandmark.MOUTH_RIGHT);
-        drawLandmarkPoint(canvas, FaceLandmark.MOUTH_BOTTOM);
-    }
+        // Attributes come from the sampled classification pass and may not exist yet
+        TrackedFace.Attributes attributes = face.getAttributes();
+        if (attributes == null) {
+            return;
+        }
 
-    private void drawLandmarkPoint(Canvas canvas, int landmarkType) {
-        FaceLandmark landmark = face.getLandmark(landmarkType);
-        if (landmark != null) {
-            PointF point = landmark.getPosition();
+        // Cheaper detail presets skip classification, so there may be landmarks but no labels
+        if (attributes.smilingProbability != null) {
+            updateLabels(attributes);
+            canvas.drawText(smileText, rectF.left, rectF.top - 30, faceTextPaint);
+            canvas.drawText(eyesText, rectF.left, rectF.top - 80, faceTextPaint);
+        }
 
-            float x = translateX(point.x);
-            float y = translateY(point.y);
+        // Draw key landmarks, placed on the current box and mapped to the view in one batch
+        attributes.getLandmarks(imageBox, landmarkPoints);
+        mapPoints(landmarkPoints, TrackedFace.Attributes.LANDMARK_TYPES.length);
+        float radius = scale(LANDMARK_RADIUS);
+        for (int i = 0; i < landmarkPoints.length; i += 2) {
+            if (!Float.isNaN(landmarkPoints[i])) {
+                canvas.drawCircle(landmarkPoints[i], landmarkPoints[i + 1], radius, landmarkPaint);
+            }
+        }
+    }
 
-            // Log landmark positions for debugging
-            Log.d(TAG, "Landmark " + landmarkType + " original: " + point.x + "," + point.y);
-            Log.d(TAG, "Landmark " + landmarkType + " transformed: " + x + "," + y);
+    @Override
+    public boolean isAnimating() {
+        return face != null && face.isExtrapolating(lastDrawTimeMs);
+    }
+
+    private void updateLabels(TrackedFace.Attributes attributes) {
+        int smile = toPercent(attributes.smilingProbability);
+        int leftEye = toPercent(attributes.leftEyeOpenProbability);
+        int rightEye = toPercent(attributes.rightEyeOpenProbability);
 
-            canvas.drawCircle(
-                    x,
-                    y,
-                    scale(LANDMARK_RADIUS),
-                    landmarkPaint);
+        // Emojis for better visual representation
+        if (smile != smilePercent || smileText == null) {
+            smilePercent = smile;
+            smileText = "😊 " + smile + "%";
         }
+        if (leftEye != leftEyePercent || rightEye != rightEyePercent || eyesText == null) {
+            leftEyePercent = leftEye;
+            rightEyePercent = rightEye;
+            eyesText = "👁️ L:" + leftEye + "% R:" + rightEye + "%";
+        }
+    }
+
+    private static int toPercent(Float probability) {
+        return probability != null ? Math.round(probability * 100) : 0;
     }
-}
\ No newline at end of file
+}
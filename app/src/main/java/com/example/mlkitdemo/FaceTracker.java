@@ -0,0 +1,132 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-tracking-ID state for detected faces, smoothed over time and predictable between frames.
+ *
+ * Each tracked face keeps one-euro filters on its box centre and size, so detection jitter is
+ * removed without adding lag to real movement. Between detections the box is extrapolated along
+ * the filtered velocity to any display time, for at most {@link #MAX_EXTRAPOLATION_MS}, so the
+ * overlay can move at display rate while detection runs much slower. Landmarks are stored
+ * relative to the box and follow it.
+ *
+ * Not thread-safe; call from the thread pipeline results are delivered on, which is also the
+ * thread the overlay draws on.
+ */
+public class FaceTracker {
+    // Longest a box keeps moving after its last detection; past this it holds still
+    public static final long MAX_EXTRAPOLATION_MS = 100;
+
+    private static final float POSITION_MIN_CUTOFF_HZ = 1.5f;
+    private static final float POSITION_BETA = 0.01f;
+    private static final float SIZE_MIN_CUTOFF_HZ = 0.8f;
+    private static final float SIZE_BETA = 0.005f;
+    private static final float DERIVATIVE_CUTOFF_HZ = 1.0f;
+
+    private final Map<Integer, Track> tracks = new HashMap<>();
+    private final List<Track> current = new ArrayList<>();
+
+    /**
+     * Folds one frame's faces into their tracks and returns the tracks visible in that frame.
+     * Tracks of faces that are no longer detected are dropped. Faces without a tracking ID get
+     * a fresh, unsmoothed track every frame. {@code timeMs} is when the frame was captured, on the
+     * clock the overlay draws with.
+     */
+    public List<Track> update(List<TrackedFace> faces, long timeMs) {
+        current.clear();
+        for (TrackedFace face : faces) {
+            Integer id = face.getTrackingId();
+            Track track = id != null ? tracks.get(id) : null;
+            if (track == null) {
+                track = new Track(id);
+                if (id != null) {
+                    tracks.put(id, track);
+                }
+            }
+            track.observe(face, timeMs);
+            current.add(track);
+        }
+
+        for (Iterator<Track> it = tracks.values().iterator(); it.hasNext(); ) {
+            if (it.next().lastSeenMs != timeMs) {
+                it.remove();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Forgets every track, e.g. when switching cameras.
+     */
+    public void clear() {
+        tracks.clear();
+        current.clear();
+    }
+
+    /**
+     * One face followed across frames.
+     */
+    public static final class Track {
+        private final Integer trackingId;
+        private final OneEuroFilter centerX = new OneEuroFilter(POSITION_MIN_CUTOFF_HZ, POSITION_BETA, DERIVATIVE_CUTOFF_HZ);
+        private final OneEuroFilter centerY = new OneEuroFilter(POSITION_MIN_CUTOFF_HZ, POSITION_BETA, DERIVATIVE_CUTOFF_HZ);
+        private final OneEuroFilter width = new OneEuroFilter(SIZE_MIN_CUTOFF_HZ, SIZE_BETA, DERIVATIVE_CUTOFF_HZ);
+        private final OneEuroFilter height = new OneEuroFilter(SIZE_MIN_CUTOFF_HZ, SIZE_BETA, DERIVATIVE_CUTOFF_HZ);
+        private TrackedFace.Attributes attributes;
+        private long lastSeenMs;
+
+        Track(Integer trackingId) {
+            this.trackingId = trackingId;
+        }
+
+        void observe(TrackedFace face, long timeMs) {
+            Rect box = face.getBoundingBox();
+            centerX.filter(box.exactCenterX(), timeMs);
+            centerY.filter(box.exactCenterY(), timeMs);
+            width.filter(box.width(), timeMs);
+            height.filter(box.height(), timeMs);
+            if (face.attributes != null) {
+                attributes = face.attributes;
+            }
+            lastSeenMs = timeMs;
+        }
+
+        public Integer getTrackingId() {
+            return trackingId;
+        }
+
+        /**
+         * The latest classification attributes, or null if the face has not been sampled yet.
+         */
+        public TrackedFace.Attributes getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Writes the box predicted for {@code timeMs}, in image coordinates, to {@code out}.
+         */
+        public void predictBox(long timeMs, RectF out) {
+            float cx = centerX.predict(timeMs, MAX_EXTRAPOLATION_MS);
+            float cy = centerY.predict(timeMs, MAX_EXTRAPOLATION_MS);
+            float halfWidth = Math.max(width.predict(timeMs, MAX_EXTRAPOLATION_MS), 1f) / 2f;
+            float halfHeight = Math.max(height.predict(timeMs, MAX_EXTRAPOLATION_MS), 1f) / 2f;
+            out.set(cx - halfWidth, cy - halfHeight, cx + halfWidth, cy + halfHeight);
+        }
+
+        /**
+         * Returns whether the box is still moving at {@code timeMs}, i.e. whether the display
+         * needs redrawing to follow it.
+         */
+        public boolean isExtrapolating(long timeMs) {
+            return timeMs - lastSeenMs < MAX_EXTRAPOLATION_MS;
+        }
+    }
+}
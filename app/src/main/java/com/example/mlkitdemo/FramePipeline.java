@@ -0,0 +1,426 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+import android.media.Image;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
+import androidx.camera.core.ExperimentalGetImage;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared frame-analysis pipeline used by every ML Kit screen.
+ *
+ * The pipeline owns the whole lifecycle of a camera frame: it converts the {@link ImageProxy}
+ * into an {@link InputImage}, dispatches it to the detector, delivers the result (or the error)
+ * and always closes the proxy exactly once, whatever path the frame takes. Screens only supply
+ * the detector call and the listeners they care about.
+ *
+ * Stage hooks:
+ * <ul>
+ *     <li>{@link FrameFilter} runs before conversion and can drop a frame (throttling, freezing,
+ *     caching of known results).</li>
+ *     <li>{@link MetricsListener} is told the detector latency of every processed frame.</li>
+ * </ul>
+ *
+ * A centered region of interest ({@link #setRegionOfInterest}) makes the pipeline send only that
+ * region's luminance to the detector; {@link FrameInfo#getCropLeft()} and
+ * {@link FrameInfo#getCropTop()} map results back onto the full frame.
+ *
+ * By default one frame is analyzed at a time. With {@link Builder#setMaxInFlight(int)} greater
+ * than one, up to N detector calls overlap with camera delivery; {@link #configure} raises the
+ * {@link ImageAnalysis} queue depth to match. Frames arriving while all slots are busy are dropped
+ * instead of queued, so the newest frame never waits behind a backlog, and results that complete
+ * after a newer frame's result has been delivered are discarded as stale.
+ *
+ * Listeners run on the thread ML Kit completes its task on, which is the main thread.
+ *
+ * @param <T> the detector result type (e.g. {@code List<Barcode>} or {@code Text})
+ */
+public class FramePipeline<T> implements ImageAnalysis.Analyzer {
+
+    private static final String TAG = "FramePipeline";
+
+    /**
+     * Runs the actual ML Kit call for one frame.
+     */
+    public interface Detector<T> {
+        Task<T> process(InputImage image);
+    }
+
+    /**
+     * Decides whether a frame should reach the detector. Rejected frames are closed immediately.
+     * Only asked when a detector slot is free, so a frame it accepts is always processed.
+     */
+    public interface FrameFilter {
+        boolean shouldProcess(ImageProxy imageProxy);
+    }
+
+    /**
+     * Receives the detector output together with the geometry of the frame it came from.
+     */
+    public interface ResultListener<T> {
+        void onResult(T result, FrameInfo frameInfo);
+    }
+
+    /**
+     * Receives conversion and detector failures.
+     */
+    public interface ErrorListener {
+        void onError(Exception e);
+    }
+
+    /**
+     * Receives the detector latency of every processed frame.
+     */
+    public interface MetricsListener {
+        void onFrameProcessed(FrameInfo frameInfo, long latencyMs);
+    }
+
+    /**
+     * Geometry of an analyzed frame, captured before the {@link ImageProxy} is released so that
+     * listeners never have to touch a closed proxy.
+     */
+    public static final class FrameInfo {
+        private final int width;
+        private final int height;
+        private final int rotationDegrees;
+        private final long timestampNanos;
+        private final int cropLeft;
+        private final int cropTop;
+
+        FrameInfo(int width, int height, int rotationDegrees, long timestampNanos, Rect crop) {
+            this.width = width;
+            this.height = height;
+            this.rotationDegrees = rotationDegrees;
+            this.timestampNanos = timestampNanos;
+            if (crop == null) {
+                cropLeft = 0;
+                cropTop = 0;
+            } else {
+                // Where the crop's top-left corner lands once the frame is rotated upright
+                switch (rotationDegrees) {
+                    case 90:
+                        cropLeft = height - crop.bottom;
+                        cropTop = crop.left;
+                        break;
+                    case 180:
+                        cropLeft = width - crop.right;
+                        cropTop = height - crop.bottom;
+                        break;
+                    case 270:
+                        cropLeft = crop.top;
+                        cropTop = width - crop.right;
+                        break;
+                    default:
+                        cropLeft = crop.left;
+                        cropTop = crop.top;
+                        break;
+                }
+            }
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getRotationDegrees() {
+            return rotationDegrees;
+        }
+
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        /**
+         * Width of the frame once rotated upright, i.e. in the coordinate space of detector results.
+         */
+        public int getUprightWidth() {
+            return rotationDegrees % 180 == 0 ? width : height;
+        }
+
+        /**
+         * Height of the frame once rotated upright, i.e. in the coordinate space of detector results.
+         */
+        public int getUprightHeight() {
+            return rotationDegrees % 180 == 0 ? height : width;
+        }
+
+        /**
+         * Upright x offset of the region of interest. Detector coordinates are relative to the
+         * region, so add this to map them back onto the full frame. Zero when not cropped.
+         */
+        public int getCropLeft() {
+            return cropLeft;
+        }
+
+        /**
+         * Upright y offset of the region of interest; see {@link #getCropLeft()}.
+         */
+        public int getCropTop() {
+            return cropTop;
+        }
+    }
+
+    /**
+     * Centered region of interest, expressed as fractions of the upright frame.
+     */
+    private static final class RegionOfInterest {
+        private final float widthFraction;
+        private final float heightFraction;
+
+        RegionOfInterest(float widthFraction, float heightFraction) {
+            this.widthFraction = widthFraction;
+            this.heightFraction = heightFraction;
+        }
+
+        /**
+         * Maps the region onto the unrotated buffer, with even dimensions as NV21 requires.
+         */
+        Rect toBufferRect(int bufferWidth, int bufferHeight, int rotationDegrees) {
+            boolean sideways = rotationDegrees % 180 != 0;
+            int cropWidth = Math.round(bufferWidth * (sideways ? heightFraction : widthFraction)) & ~1;
+            int cropHeight = Math.round(bufferHeight * (sideways ? widthFraction : heightFraction)) & ~1;
+            int left = ((bufferWidth - cropWidth) / 2) & ~1;
+            int top = ((bufferHeight - cropHeight) / 2) & ~1;
+            return new Rect(left, top, left + cropWidth, top + cropHeight);
+        }
+    }
+
+    private final Detector<T> detector;
+    private final FrameFilter frameFilter;
+    private final ResultListener<T> resultListener;
+    private final ErrorListener errorListener;
+    private final MetricsListener metricsListener;
+    private final int maxInFlight;
+
+    private final LuminanceCropper cropper = new LuminanceCropper();
+    private volatile RegionOfInterest regionOfInterest;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong lastDeliveredSequence = new AtomicLong(-1);
+
+    private FramePipeline(Builder<T> builder) {
+        this.detector = builder.detector;
+        this.frameFilter = builder.frameFilter;
+        this.resultListener = builder.resultListener;
+        this.errorListener = builder.errorListener;
+        this.metricsListener = builder.metricsListener;
+        this.maxInFlight = builder.maxInFlight;
+    }
+
+    /**
+     * Applies the backpressure settings this pipeline needs to an {@link ImageAnalysis} builder.
+     * Single-frame pipelines keep only the latest frame; pipelined ones block the producer with a
+     * queue one deeper than the in-flight limit so the camera always has a free buffer.
+     */
+    public ImageAnalysis.Builder configure(ImageAnalysis.Builder builder) {
+        if (maxInFlight > 1) {
+            builder.setBackpressureStrategy(ImageAnalysis.STRATEGY_BLOCK_PRODUCER)
+                    .setImageQueueDepth(maxInFlight + 1);
+        } else {
+            builder.setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        }
+        return builder;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Restricts detection to a centered region covering the given fractions of the upright frame.
+     * Only that region's luminance is sent to the detector. Fractions of one (or more) on both
+     * axes clear the region and send whole frames again. Safe to call while frames are flowing.
+     */
+    public void setRegionOfInterest(float widthFraction, float heightFraction) {
+        if (widthFraction >= 1f && heightFraction >= 1f) {
+            regionOfInterest = null;
+        } else {
+            regionOfInterest = new RegionOfInterest(
+                    Math.max(0.1f, Math.min(1f, widthFraction)),
+                    Math.max(0.1f, Math.min(1f, heightFraction)));
+        }
+    }
+
+    @OptIn(markerClass = ExperimentalGetImage.class)
+    @Override
+    public void analyze(@NonNull ImageProxy imageProxy) {
+        // All slots busy: drop this frame rather than let it queue up and go stale. This comes
+        // before the filter, so stateful filters only ever see frames that can reach the detector.
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            imageProxy.close();
+            return;
+        }
+
+        if (frameFilter != null && !frameFilter.shouldProcess(imageProxy)) {
+            inFlight.decrementAndGet();
+            imageProxy.close();
+            return;
+        }
+
+        Image mediaImage = imageProxy.getImage();
+        if (mediaImage == null) {
+            inFlight.decrementAndGet();
+            imageProxy.close();
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+
+        int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+        RegionOfInterest roi = regionOfInterest;
+        Rect crop = roi != null
+                ? roi.toBufferRect(imageProxy.getWidth(), imageProxy.getHeight(), rotationDegrees)
+                : null;
+        FrameInfo frameInfo = new FrameInfo(
+                imageProxy.getWidth(),
+                imageProxy.getHeight(),
+                rotationDegrees,
+                imageProxy.getImageInfo().getTimestamp(),
+                crop
+        );
+
+        long startMs = SystemClock.elapsedRealtime();
+        Task<T> task;
+        byte[] luminance = null;
+        try {
+            InputImage inputImage;
+            if (crop == null) {
+                inputImage = InputImage.fromMediaImage(mediaImage, rotationDegrees);
+            } else {
+                luminance = cropper.crop(imageProxy, crop);
+                inputImage = InputImage.fromByteArray(luminance, crop.width(), crop.height(),
+                        rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+            }
+            task = detector.process(inputImage);
+        } catch (Exception e) {
+            inFlight.decrementAndGet();
+            imageProxy.close();
+            if (luminance != null) {
+                cropper.recycle(luminance);
+            }
+            deliverError(e);
+            return;
+        }
+
+        // A cropped frame is a copy, so the camera buffer can go back right away. Otherwise the
+        // media image must stay valid until the detector is done with it, so the proxy is
+        // released in the completion listener, which runs on success, failure and cancellation.
+        final byte[] croppedLuminance = luminance;
+        if (croppedLuminance != null) {
+            imageProxy.close();
+        }
+        task.addOnCompleteListener(completedTask -> {
+            if (croppedLuminance != null) {
+                cropper.recycle(croppedLuminance);
+            } else {
+                imageProxy.close();
+            }
+            inFlight.decrementAndGet();
+
+            if (metricsListener != null) {
+                metricsListener.onFrameProcessed(frameInfo, SystemClock.elapsedRealtime() - startMs);
+            }
+
+            if (!claimDelivery(sequence)) {
+                // A newer frame already reported; this result would move the UI backwards
+                return;
+            }
+
+            if (completedTask.isSuccessful()) {
+                if (resultListener != null) {
+                    resultListener.onResult(completedTask.getResult(), frameInfo);
+                }
+            } else {
+                Exception e = completedTask.getException();
+                deliverError(e != null ? e : new IllegalStateException("Detection was cancelled"));
+            }
+        });
+    }
+
+    /**
+     * Returns true if the result of the given frame is newer than anything delivered so far.
+     */
+    private boolean claimDelivery(long sequence) {
+        while (true) {
+            long last = lastDeliveredSequence.get();
+            if (sequence <= last) {
+                return false;
+            }
+            if (lastDeliveredSequence.compareAndSet(last, sequence)) {
+                return true;
+            }
+        }
+    }
+
+    private void deliverError(Exception e) {
+        if (errorListener != null) {
+            errorListener.onError(e);
+        } else {
+            Log.e(TAG, "Frame analysis failed", e);
+        }
+    }
+
+    /**
+     * Builder for {@link FramePipeline}. Only the detector is required.
+     */
+    public static class Builder<T> {
+        private final Detector<T> detector;
+        private FrameFilter frameFilter;
+        private ResultListener<T> resultListener;
+        private ErrorListener errorListener;
+        private MetricsListener metricsListener;
+        private int maxInFlight = 1;
+
+        public Builder(@NonNull Detector<T> detector) {
+            this.detector = detector;
+        }
+
+        public Builder<T> setFrameFilter(FrameFilter frameFilter) {
+            this.frameFilter = frameFilter;
+            return this;
+        }
+
+        public Builder<T> setResultListener(ResultListener<T> resultListener) {
+            this.resultListener = resultListener;
+            return this;
+        }
+
+        public Builder<T> setErrorListener(ErrorListener errorListener) {
+            this.errorListener = errorListener;
+            return this;
+        }
+
+        public Builder<T> setMetricsListener(MetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        /**
+         * Sets how many detector calls may run concurrently. Values below one are treated as one.
+         */
+        public Builder<T> setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = Math.max(1, maxInFlight);
+            return this;
+        }
+
+        public FramePipeline<T> build() {
+            return new FramePipeline<>(this);
+        }
+    }
+}
@@ -3,86 +3,147 @@ package com.example.mlkitdemo;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 import androidx.camera.core.CameraSelector;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A view which renders a series of custom graphics to be overlaid on top of an associated preview
- * (i.e., the camera preview). The creator can add graphics objects, update the objects, and remove
- * them, triggering the appropriate drawing and invalidation within the view.
+ * (i.e., the camera preview).
+ *
+ * Graphics are handed over a whole frame at a time. The producer fills the {@link Scene} returned
+ * by {@link #beginScene()} and hands it over with {@link #publish(Scene)}, one atomic swap and one
+ * invalidate per frame. Three scenes rotate between the producer, the latest published frame and
+ * the one being drawn, so neither side ever waits for the other and a half-built frame is never
+ * drawn. {@link #clear()}, {@link #add} and {@link #remove} still work, each publishing a copy of
+ * the latest scene with the change applied.
+ *
+ * Graphics use image coordinates. The image-to-view transform is cached, keyed by image size,
+ * rotation, lens facing and view size, and only rebuilt when one of them changes. Graphics with
+ * a lot of geometry should map it in bulk with {@link Graphic#mapRect} and
+ * {@link Graphic#mapPoints} rather than point by point.
  */
 public class GraphicOverlay extends View {
     private static final String TAG = "GraphicOverlay";
 
-    private final Object lock = new Object();
-    private final List<Graphic> graphics = new ArrayList<>();
+    // Latest published scene, waiting for the next draw; swapped by both sides
+    private final AtomicReference<Scene> ready = new AtomicReference<>(new Scene());
+    // Only touched by onDraw
+    private Scene front = new Scene();
+    // Only touched by the producer
+    private Scene back = new Scene();
+    private Scene lastPublished = front;
+    private long sceneVersion = 0;
 
-    // Camera and image properties
+    // Camera and image properties; width and height are of the upright image
     private int imageWidth;
     private int imageHeight;
+    private int rotationDegrees;
     private int lensFacing = CameraSelector.LENS_FACING_FRONT;
 
-    // Transformation properties
+    // Transformation properties, valid for the key below
+    private final Matrix transformationMatrix = new Matrix();
     private float scaleFactor = 1.0f;
-    private float postScaleWidthOffset = 0f;
+    private float mappedScaleX = 1.0f; // Negative when mirrored
+    private float postScaleWidthOffset = 0f; // Includes the shift that mirroring adds
     private float postScaleHeightOffset = 0f;
-    private Matrix transformationMatrix = new Matrix();
-    private boolean needUpdateTransformation = true;
+
+    // What the transformation was built for
+    private int transformImageWidth = -1;
+    private int transformImageHeight = -1;
+    private int transformRotation = -1;
+    private int transformLensFacing = -1;
+    private int transformViewWidth = -1;
+    private int transformViewHeight = -1;
 
     public GraphicOverlay(Context context, AttributeSet attrs) {
         super(context, attrs);
-        // Listen for layout changes to update transformation
-        addOnLayoutChangeListener(
-                (view, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
-                    needUpdateTransformation = true;
-                });
+    }
+
+    /**
+     * Returns an empty scene to build the next frame in. Scenes are built and published by one
+     * thread at a time, which does not have to be the UI thread.
+     */
+    public Scene beginScene() {
+        back.reset();
+        return back;
+    }
+
+    /**
+     * Makes {@code scene}, as returned by {@link #beginScene()}, the frame drawn from now on.
+     * The scene must not be changed afterwards.
+     */
+    public void publish(Scene scene) {
+        if (scene != back) {
+            throw new IllegalArgumentException("Scene was not returned by beginScene()");
+        }
+        scene.version = ++sceneVersion;
+        lastPublished = scene;
+        // Takes back whichever scene is not being drawn: the previous, possibly never drawn,
+        // frame, or the one onDraw just finished with
+        back = ready.getAndSet(scene);
+        postInvalidateOnAnimation();
     }
 
     /**
      * Removes all graphics from the overlay.
      */
     public void clear() {
-        synchronized (lock) {
-            graphics.clear();
-        }
-        postInvalidate();
+        publish(beginScene());
     }
 
     /**
      * Adds a graphic to the overlay.
      */
     public void add(Graphic graphic) {
-        synchronized (lock) {
-            graphics.add(graphic);
-        }
-        postInvalidate();
+        Scene scene = beginScene();
+        scene.graphics.addAll(lastPublished.graphics);
+        scene.add(graphic);
+        publish(scene);
     }
 
     /**
      * Removes a graphic from the overlay.
      */
     public void remove(Graphic graphic) {
-        synchronized (lock) {
-            graphics.remove(graphic);
-        }
-        postInvalidate();
+        Scene scene = beginScene();
+        scene.graphics.addAll(lastPublished.graphics);
+        scene.graphics.remove(graphic);
+        publish(scene);
     }
 
     /**
-     * Sets the camera attributes for the overlay.
+     * Sets the camera attributes for the overlay, for an image that is already upright. Call from
+     * the UI thread.
      */
     public void setCameraInfo(int imageWidth, int imageHeight, int lensFacing) {
-        synchronized (lock) {
-            this.imageWidth = imageWidth;
-            this.imageHeight = imageHeight;
-            this.lensFacing = lensFacing;
-            needUpdateTransformation = true;
+        setCameraInfo(imageWidth, imageHeight, 0, lensFacing);
+    }
+
+    /**
+     * Sets the camera attributes for the overlay from the analysis buffer size and the rotation
+     * that turns it upright, as reported by the camera. Detector results are in upright
+     * coordinates, so the size is swapped for 90 and 270 degrees. Cheap when nothing changed, so
+     * it can be called for every frame. Call from the UI thread.
+     */
+    public void setCameraInfo(int bufferWidth, int bufferHeight, int rotationDegrees, int lensFacing) {
+        boolean sideways = rotationDegrees % 180 != 0;
+        int uprightWidth = sideways ? bufferHeight : bufferWidth;
+        int uprightHeight = sideways ? bufferWidth : bufferHeight;
+        if (uprightWidth == imageWidth && uprightHeight == imageHeight
+                && rotationDegrees == this.rotationDegrees && lensFacing == this.lensFacing) {
+            return;
         }
+
+        this.imageWidth = uprightWidth;
+        this.imageHeight = uprightHeight;
+        this.rotationDegrees = rotationDegrees;
+        this.lensFacing = lensFacing;
         postInvalidate();
     }
 
@@ -90,6 +151,7 @@ public class GraphicOverlay extends View {
      * Returns the scale factor from the image dimensions to the overlay dimensions.
      */
     public float getScaleFactor() {
+        updateTransformationIfNeeded();
         return scaleFactor;
     }
 
@@ -105,15 +167,8 @@ public class GraphicOverlay extends View {
      * coordinate system.
      */
     public float translateX(float x) {
-        if (needUpdateTransformation) {
-            updateTransformationIfNeeded();
-        }
-
-        if (isImageFlipped()) {
-            x = imageWidth - x;
-        }
-
-        return x * scaleFactor + postScaleWidthOffset;
+        updateTransformationIfNeeded();
+        return x * mappedScaleX + postScaleWidthOffset;
     }
 
     /**
@@ -121,12 +176,45 @@ public class GraphicOverlay extends View {
      * coordinate system.
      */
     public float translateY(float y) {
-        if (needUpdateTransformation) {
-            updateTransformationIfNeeded();
-        }
-
+        updateTransformationIfNeeded();
         return y * scaleFactor + postScaleHeightOffset;
     }
+
+    /**
+     * Maps {@code rect} from the image's coordinate system to the view's, in place. The result is
+     * sorted, so mirroring never leaves left greater than right.
+     */
+    public void mapRect(RectF rect) {
+        updateTransformationIfNeeded();
+        transformationMatrix.mapRect(rect);
+    }
+
+    /**
+     * Maps the first {@code pointCount} x, y pairs of {@code points} from the image's coordinate
+     * system to the view's, in place. NaN coordinates stay NaN.
+     */
+    public void mapPoints(float[] points, int pointCount) {
+        updateTransformationIfNeeded();
+        transformationMatrix.mapPoints(points, 0, points, 0, pointCount);
+    }
+
+    /**
+     * Maps an x coordinate in the view, such as a touch point, back to the image's coordinate
+     * system. Inverse of {@link #translateX(float)}.
+     */
+    public float toImageX(float viewX) {
+        updateTransformationIfNeeded();
+        return (viewX - postScaleWidthOffset) / mappedScaleX;
+    }
+
+    /**
+     * Maps a y coordinate in the view back to the image's coordinate system. Inverse of
+     * {@link #translateY(float)}.
+     */
+    public float toImageY(float viewY) {
+        updateTransformationIfNeeded();
+        return (viewY - postScaleHeightOffset) / scaleFactor;
+    }
     /*
     getter functions
      */
@@ -137,30 +225,28 @@ public class GraphicOverlay extends View {
     public int getImageHeight() {
         return imageHeight;
     }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
     /**
-     * Updates the transformation matrix for accurate coordinate mapping.
+     * Rebuilds the transformation if the image or view changed since it was last built.
      */
     private void updateTransformationIfNeeded() {
-        if (!needUpdateTransformation || imageWidth <= 0 || imageHeight <= 0) {
+        int viewWidthPx = getWidth();
+        int viewHeightPx = getHeight();
+        if (imageWidth == transformImageWidth && imageHeight == transformImageHeight
+                && rotationDegrees == transformRotation && lensFacing == transformLensFacing
+                && viewWidthPx == transformViewWidth && viewHeightPx == transformViewHeight) {
             return;
         }
-
-        // Get view dimensions
-        float viewWidth = getWidth();
-        float viewHeight = getHeight();
-
-        // Reset transformation matrix
-        transformationMatrix.reset();
-
-        // Calculate scaling factors
-        float scaleX = viewWidth / (float) imageWidth;
-        float scaleY = viewHeight / (float) imageHeight;
-
-        // For front camera, we need to handle the mirrored preview
-        if (isImageFlipped()) {
-            transformationMatrix.postScale(-1f, 1f, viewWidth / 2f, viewHeight / 2f);
+        if (imageWidth <= 0 || imageHeight <= 0 || viewWidthPx <= 0 || viewHeightPx <= 0) {
+            return;
         }
 
+        float viewWidth = viewWidthPx;
+        float viewHeight = viewHeightPx;
+
         // Fix: Account for different aspect ratios between camera and view
         // Calculate the aspect ratios
         float viewAspectRatio = viewWidth / viewHeight;
@@ -178,34 +264,96 @@ public class GraphicOverlay extends View {
             postScaleHeightOffset = (viewHeight - imageHeight * scaleFactor) / 2;
         }
 
+        // For front camera, we need to handle the mirrored preview: x becomes imageWidth - x
+        if (isImageFlipped()) {
+            mappedScaleX = -scaleFactor;
+            postScaleWidthOffset += imageWidth * scaleFactor;
+        } else {
+            mappedScaleX = scaleFactor;
+        }
+
         // Apply scaling and translation
-        transformationMatrix.postScale(scaleFactor, scaleFactor);
+        transformationMatrix.setScale(mappedScaleX, scaleFactor);
         transformationMatrix.postTranslate(postScaleWidthOffset, postScaleHeightOffset);
 
-        Log.d(TAG, String.format(
-                "Updated transformation - Image: %dx%d, View: %.0fx%.0f, Scale: %.2f, Mirrored: %b",
-                imageWidth, imageHeight, viewWidth, viewHeight, scaleFactor, isImageFlipped()));
+        transformImageWidth = imageWidth;
+        transformImageHeight = imageHeight;
+        transformRotation = rotationDegrees;
+        transformLensFacing = lensFacing;
+        transformViewWidth = viewWidthPx;
+        transformViewHeight = viewHeightPx;
 
-        needUpdateTransformation = false;
+        Log.d(TAG, String.format(
+                "Updated transformation - Image: %dx%d at %d deg, View: %.0fx%.0f, Scale: %.2f, Mirrored: %b",
+                imageWidth, imageHeight, rotationDegrees, viewWidth, viewHeight, scaleFactor, isImageFlipped()));
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        synchronized (lock) {
-            updateTransformationIfNeeded();
+        // Take the latest published scene, if there is a newer one than the last drawn. The
+        // producer only ever gets back a scene that is not about to be drawn.
+        if (ready.get().version > front.version) {
+            front = ready.getAndSet(front);
+        }
 
-            // Apply transformation to canvas if needed
-            canvas.save();
-            // No need to apply transformation to canvas since we're
-            // transforming individual coordinates in translateX/Y methods
-            canvas.restore();
+        // Graphics map their own geometry, so the canvas itself stays untransformed and strokes
+        // and text keep their pixel sizes
+        updateTransformationIfNeeded();
+
+        // Draw all graphics
+        ArrayList<Graphic> graphics = front.graphics;
+        boolean animating = false;
+        for (int i = 0; i < graphics.size(); i++) {
+            Graphic graphic = graphics.get(i);
+            graphic.draw(canvas);
+            animating |= graphic.isAnimating();
+        }
+        // Keep redrawing on every vsync while a graphic is still moving between detections
+        if (animating) {
+            postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * The graphics of one frame. Scenes are reused: each remembers the graphics it held the
+     * last time it was built, and {@link #recycle} hands them out again, so producers can keep a
+     * pool without ever re-binding a graphic that is still on screen.
+     */
+    public static final class Scene {
+        private ArrayList<Graphic> graphics = new ArrayList<>();
+        private ArrayList<Graphic> recycled = new ArrayList<>();
+        private volatile long version = 0;
 
-            // Draw all graphics
-            for (Graphic graphic : graphics) {
-                graphic.draw(canvas);
+        Scene() {
+        }
+
+        public void add(Graphic graphic) {
+            graphics.add(graphic);
+        }
+
+        /**
+         * Returns a graphic of {@code type} that this scene held the last time it was built, or
+         * null if there is none left. Only safe for graphics that are added to one scene at a
+         * time, which {@link GraphicOverlay#add} does not guarantee.
+         */
+        public <G extends Graphic> G recycle(Class<G> type) {
+            for (int i = recycled.size() - 1; i >= 0; i--) {
+                Graphic graphic = recycled.get(i);
+                if (type.isInstance(graphic)) {
+                    recycled.remove(i);
+                    return type.cast(graphic);
+                }
             }
+            return null;
+        }
+
+        private void reset() {
+            ArrayList<Graphic> previous = graphics;
+            graphics = recycled;
+            recycled = previous;
+            graphics.clear();
         }
     }
 
@@ -224,6 +372,14 @@ public class GraphicOverlay extends View {
          */
         public abstract void draw(Canvas canvas);
 
+        /**
+         * Returns whether the graphic changes over time on its own, in which case the overlay
+         * redraws on the next display frame. Checked after each draw.
+         */
+        public boolean isAnimating() {
+            return false;
+        }
+
         /**
          * Adjusts the supplied value from the image scale to the view scale.
          */
@@ -245,6 +401,22 @@ public class GraphicOverlay extends View {
             return overlay.translateY(y);
         }
 
+        /**
+         * Maps {@code rect} from image to view coordinates in place; see
+         * {@link GraphicOverlay#mapRect(RectF)}.
+         */
+        public void mapRect(RectF rect) {
+            overlay.mapRect(rect);
+        }
+
+        /**
+         * Maps {@code pointCount} x, y pairs from image to view coordinates in place; see
+         * {@link GraphicOverlay#mapPoints(float[], int)}.
+         */
+        public void mapPoints(float[] points, int pointCount) {
+            overlay.mapPoints(points, pointCount);
+        }
+
         /**
          * Returns the application context for the overlay.
          */
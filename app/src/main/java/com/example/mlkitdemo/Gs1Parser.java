@@ -0,0 +1,302 @@
+package com.example.mlkitdemo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser for GS1 element strings, as carried by GS1-128, GS1 DataMatrix and GS1 QR codes.
+ *
+ * Accepts both the encoded form, where variable-length fields are terminated by the FNC1 group
+ * separator (GS, 0x1D), and the human-readable form with application identifiers in
+ * parentheses. Field lengths come from a fixed table of the identifiers used on trade items and
+ * logistic units, so each string is parsed in one left-to-right pass without backtracking.
+ */
+public final class Gs1Parser {
+    private static final char GROUP_SEPARATOR = '\u001D';
+    private static final String[] SYMBOLOGY_PREFIXES = {"]C1", "]d2", "]Q3", "]e0", "]J1"};
+
+    /**
+     * One application identifier and its value. Dates are formatted as yyyy-MM-dd and measures
+     * carry their implied decimal point.
+     */
+    public static final class Element {
+        public final String ai;
+        public final String title;
+        public final String value;
+
+        Element(String ai, String title, String value) {
+            this.ai = ai;
+            this.title = title;
+            this.value = value;
+        }
+    }
+
+    private enum Format {
+        TEXT,
+        DATE,
+        DECIMAL
+    }
+
+    private static final class AiSpec {
+        final int aiLength;
+        final int fixedLength; // -1 for variable-length fields
+        final int maxLength;
+        final String title;
+        final Format format;
+
+        AiSpec(int aiLength, int fixedLength, int maxLength, String title, Format format) {
+            this.aiLength = aiLength;
+            this.fixedLength = fixedLength;
+            this.maxLength = maxLength;
+            this.title = title;
+            this.format = format;
+        }
+    }
+
+    // Keyed by AI prefix; no key is a prefix of another, so lookup by 2, 3 then 4 digits is unique
+    private static final Map<String, AiSpec> AI_TABLE = new HashMap<>();
+
+    static {
+        fixed("00", 2, 18, "SSCC", Format.TEXT);
+        fixed("01", 2, 14, "GTIN", Format.TEXT);
+        fixed("02", 2, 14, "Content GTIN", Format.TEXT);
+        variable("10", 2, 20, "Batch/lot");
+        fixed("11", 2, 6, "Production date", Format.DATE);
+        fixed("12", 2, 6, "Due date", Format.DATE);
+        fixed("13", 2, 6, "Packaging date", Format.DATE);
+        fixed("15", 2, 6, "Best before", Format.DATE);
+        fixed("16", 2, 6, "Sell by", Format.DATE);
+        fixed("17", 2, 6, "Expiry", Format.DATE);
+        fixed("20", 2, 2, "Variant", Format.TEXT);
+        variable("21", 2, 20, "Serial");
+        variable("22", 2, 20, "Consumer product variant");
+        variable("30", 2, 8, "Count");
+        fixed("310", 4, 6, "Net weight (kg)", Format.DECIMAL);
+        fixed("320", 4, 6, "Net weight (lb)", Format.DECIMAL);
+        fixed("330", 4, 6, "Gross weight (kg)", Format.DECIMAL);
+        fixed("340", 4, 6, "Gross weight (lb)", Format.DECIMAL);
+        fixed("311", 4, 6, "Length (m)", Format.DECIMAL);
+        fixed("312", 4, 6, "Width (m)", Format.DECIMAL);
+        fixed("313", 4, 6, "Height (m)", Format.DECIMAL);
+        fixed("331", 4, 6, "Logistic length (m)", Format.DECIMAL);
+        fixed("332", 4, 6, "Logistic width (m)", Format.DECIMAL);
+        fixed("333", 4, 6, "Logistic height (m)", Format.DECIMAL);
+        fixed("334", 4, 6, "Logistic area (m2)", Format.DECIMAL);
+        fixed("335", 4, 6, "Logistic volume (l)", Format.DECIMAL);
+        fixed("336", 4, 6, "Logistic volume (m3)", Format.DECIMAL);
+        variable("37", 2, 8, "Trade items contained");
+        variable("240", 3, 30, "Additional product ID");
+        variable("241", 3, 30, "Customer part number");
+        variable("250", 3, 30, "Secondary serial");
+        variable("251", 3, 30, "Reference to source entity");
+        variable("400", 3, 30, "Customer order number");
+        variable("401", 3, 30, "Consignment number");
+        fixed("402", 3, 17, "Shipment ID", Format.TEXT);
+        variable("403", 3, 30, "Routing code");
+        fixed("410", 3, 13, "Ship to GLN", Format.TEXT);
+        fixed("411", 3, 13, "Bill to GLN", Format.TEXT);
+        fixed("412", 3, 13, "Purchased from GLN", Format.TEXT);
+        fixed("413", 3, 13, "Ship for GLN", Format.TEXT);
+        fixed("414", 3, 13, "Location GLN", Format.TEXT);
+        fixed("415", 3, 13, "Invoicing party GLN", Format.TEXT);
+        variable("420", 3, 20, "Ship to postal code");
+        fixed("422", 3, 3, "Country of origin", Format.TEXT);
+        variable("90", 2, 30, "Internal");
+        for (int company = 91; company <= 99; company++) {
+            variable(String.valueOf(company), 2, 90, "Company internal");
+        }
+    }
+
+    private Gs1Parser() {
+    }
+
+    /**
+     * Returns the elements of {@code raw}, or null if it is not a complete, well-formed GS1
+     * element string made only of known identifiers.
+     */
+    public static List<Element> parse(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        String data = raw;
+        for (String prefix : SYMBOLOGY_PREFIXES) {
+            if (data.startsWith(prefix)) {
+                data = data.substring(prefix.length());
+                break;
+            }
+        }
+        if (!data.isEmpty() && data.charAt(0) == GROUP_SEPARATOR) {
+            data = data.substring(1);
+        }
+        if (data.isEmpty()) {
+            return null;
+        }
+        return data.charAt(0) == '(' ? parseBracketed(data) : parseEncoded(data);
+    }
+
+    /**
+     * Returns whether {@code raw} is worth trying as a GS1 string: it carries a symbology
+     * identifier, group separators or bracketed identifiers, or starts with an SSCC or GTIN.
+     */
+    public static boolean looksLikeGs1(String raw) {
+        if (raw == null || raw.length() < 4) {
+            return false;
+        }
+        return raw.charAt(0) == ']'
+                || raw.charAt(0) == '('
+                || raw.indexOf(GROUP_SEPARATOR) >= 0
+                || (raw.length() >= 16 && (raw.startsWith("00") || raw.startsWith("01") || raw.startsWith("02")));
+    }
+
+    private static List<Element> parseEncoded(String data) {
+        List<Element> elements = new ArrayList<>();
+        int pos = 0;
+        int length = data.length();
+        while (pos < length) {
+            AiSpec spec = lookup(data, pos);
+            if (spec == null || pos + spec.aiLength > length) {
+                return null;
+            }
+            String ai = data.substring(pos, pos + spec.aiLength);
+            if (!isDigits(ai)) {
+                return null;
+            }
+            pos += spec.aiLength;
+
+            int end;
+            if (spec.fixedLength > 0) {
+                end = pos + spec.fixedLength;
+                if (end > length) {
+                    return null;
+                }
+            } else {
+                end = data.indexOf(GROUP_SEPARATOR, pos);
+                if (end < 0) {
+                    end = length;
+                }
+                if (end == pos || end - pos > spec.maxLength) {
+                    return null;
+                }
+            }
+            String value = data.substring(pos, end);
+            if (value.indexOf(GROUP_SEPARATOR) >= 0) {
+                return null;
+            }
+            Element element = toElement(ai, spec, value);
+            if (element == null) {
+                return null;
+            }
+            elements.add(element);
+
+            pos = end;
+            // Separators are optional after fixed-length fields but tolerated
+            if (pos < length && data.charAt(pos) == GROUP_SEPARATOR) {
+                pos++;
+            }
+        }
+        return elements.isEmpty() ? null : Collections.unmodifiableList(elements);
+    }
+
+    private static List<Element> parseBracketed(String data) {
+        List<Element> elements = new ArrayList<>();
+        int pos = 0;
+        int length = data.length();
+        while (pos < length) {
+            if (data.charAt(pos) != '(') {
+                return null;
+            }
+            int close = data.indexOf(')', pos);
+            if (close < 0) {
+                return null;
+            }
+            String ai = data.substring(pos + 1, close);
+            AiSpec spec = lookup(ai, 0);
+            if (spec == null || ai.length() != spec.aiLength || !isDigits(ai)) {
+                return null;
+            }
+            int next = data.indexOf('(', close + 1);
+            int end = next < 0 ? length : next;
+            String value = data.substring(close + 1, end);
+            boolean validLength = spec.fixedLength > 0
+                    ? value.length() == spec.fixedLength
+                    : !value.isEmpty() && value.length() <= spec.maxLength;
+            if (!validLength) {
+                return null;
+            }
+            Element element = toElement(ai, spec, value);
+            if (element == null) {
+                return null;
+            }
+            elements.add(element);
+            pos = end;
+        }
+        return elements.isEmpty() ? null : Collections.unmodifiableList(elements);
+    }
+
+    private static AiSpec lookup(String data, int pos) {
+        for (int digits = 2; digits <= 4 && pos + digits <= data.length(); digits++) {
+            AiSpec spec = AI_TABLE.get(data.substring(pos, pos + digits));
+            if (spec != null) {
+                return spec;
+            }
+        }
+        return null;
+    }
+
+    private static Element toElement(String ai, AiSpec spec, String value) {
+        switch (spec.format) {
+            case DATE:
+                if (!isDigits(value)) {
+                    return null;
+                }
+                // Day 00 means "end of month" in GS1 dates and is kept as-is
+                return new Element(ai, spec.title, "20" + value.substring(0, 2)
+                        + "-" + value.substring(2, 4) + "-" + value.substring(4, 6));
+            case DECIMAL:
+                if (!isDigits(value)) {
+                    return null;
+                }
+                int decimals = ai.charAt(3) - '0';
+                if (decimals == 0) {
+                    return new Element(ai, spec.title, stripLeadingZeros(value));
+                }
+                int point = value.length() - decimals;
+                if (point <= 0) {
+                    return null;
+                }
+                return new Element(ai, spec.title,
+                        stripLeadingZeros(value.substring(0, point)) + "." + value.substring(point));
+            default:
+                return new Element(ai, spec.title, value);
+        }
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+            start++;
+        }
+        return digits.substring(start);
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void fixed(String prefix, int aiLength, int dataLength, String title, Format format) {
+        AI_TABLE.put(prefix, new AiSpec(aiLength, dataLength, dataLength, title, format));
+    }
+
+    private static void variable(String prefix, int aiLength, int maxLength, String title) {
+        AI_TABLE.put(prefix, new AiSpec(aiLength, -1, maxLength, title, Format.TEXT));
+    }
+}
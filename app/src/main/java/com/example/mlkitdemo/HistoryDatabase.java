@@ -0,0 +1,34 @@
+package com.example.mlkitdemo;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+/**
+ * Room database holding the scan history of every screen.
+ */
+@Database(entities = {ScanRecord.class, ScanRecordFts.class}, version = 1, exportSchema = false)
+public abstract class HistoryDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "scan_history.db";
+
+    private static volatile HistoryDatabase instance;
+
+    public abstract ScanRecordDao scanRecordDao();
+
+    public static HistoryDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HistoryDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(
+                            context.getApplicationContext(),
+                            HistoryDatabase.class,
+                            DATABASE_NAME
+                    ).build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.mlkitdemo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams scan history to a CSV or JSON Lines file, optionally gzipped.
+ *
+ * Records are read one keyset page at a time, each page is encoded into one reused text buffer,
+ * and its UTF-8 bytes go through a fixed direct buffer into the file channel, so memory stays
+ * flat however many records are exported. Blocking; {@link ScanHistory#export} runs it on the
+ * history reader thread.
+ */
+public class HistoryExporter {
+    private static final int PAGE_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        JSON_LINES("jsonl", "application/x-ndjson");
+
+        public final String extension;
+        public final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    /**
+     * Receives the outcome of an export on the main thread.
+     */
+    public interface ExportListener {
+        void onExported(File file, long recordCount);
+
+        void onExportFailed(Exception e);
+    }
+
+    private final Format format;
+    private final boolean gzip;
+    private final StringBuilder text = new StringBuilder(PAGE_SIZE * 128);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private WritableByteChannel channel;
+
+    public HistoryExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Name of the file an export with these settings should go to, e.g. "history-1700000000000.csv.gz".
+     */
+    public String getFileName(long timeMillis) {
+        return "history-" + timeMillis + "." + format.extension + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * MIME type to share the exported file with.
+     */
+    public String getMimeType() {
+        return gzip ? "application/gzip" : format.mimeType;
+    }
+
+    /**
+     * Writes every record of {@code type}, or of every type if it is null, newest first, to
+     * {@code file}. Returns the number of records written. If the export fails, the partial file
+     * is deleted before the exception is rethrown.
+     */
+    public long export(ScanRecordDao dao, String type, File file) throws IOException {
+        try {
+            return writeAll(dao, type, file);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    private long writeAll(ScanRecordDao dao, String type, File file) throws IOException {
+        buffer.clear();
+        encoder.reset();
+
+        long count = 0;
+        // The file channel is written directly; gzip has to go through its stream instead.
+        // Closing the gzip channel also writes the gzip trailer and closes the file; the file
+        // stream is closed on its own too, in case the gzip stream failed to open.
+        try (FileOutputStream out = new FileOutputStream(file);
+             WritableByteChannel fileChannel = gzip
+                     ? Channels.newChannel(new GZIPOutputStream(out, BUFFER_SIZE))
+                     : out.getChannel()) {
+            channel = fileChannel;
+            if (format == Format.CSV) {
+                text.setLength(0);
+                text.append("id,type,content,detail,created_at\n");
+                write(text);
+            }
+
+            long beforeId = Long.MAX_VALUE;
+            while (true) {
+                List<ScanRecord> page = type == null
+                        ? dao.loadPage(beforeId, PAGE_SIZE)
+                        : dao.loadPageOfType(type, beforeId, PAGE_SIZE);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                text.setLength(0);
+                for (ScanRecord record : page) {
+                    if (format == Format.CSV) {
+                        appendCsv(record);
+                    } else {
+                        appendJson(record);
+                    }
+                }
+                write(text);
+
+                count += page.size();
+                beforeId = page.get(page.size() - 1).id;
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            finish();
+        } finally {
+            channel = null;
+        }
+        return count;
+    }
+
+    private void appendCsv(ScanRecord record) {
+        text.append(record.id).append(',');
+        appendCsvField(record.type);
+        text.append(',');
+        appendCsvField(record.content);
+        text.append(',');
+        if (record.detail != null) {
+            appendCsvField(record.detail);
+        }
+        text.append(',').append(record.createdAt).append('\n');
+    }
+
+    private void appendCsvField(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            text.append(value);
+            return;
+        }
+
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                text.append('"');
+            }
+            text.append(c);
+        }
+        text.append('"');
+    }
+
+    private void appendJson(ScanRecord record) {
+        text.append("{\"id\":").append(record.id).append(",\"type\":");
+        appendJsonString(record.type);
+        text.append(",\"content\":");
+        appendJsonString(record.content);
+        text.append(",\"detail\":");
+        if (record.detail != null) {
+            appendJsonString(record.detail);
+        } else {
+            text.append("null");
+        }
+        text.append(",\"created_at\":").append(record.createdAt).append("}\n");
+    }
+
+    private void appendJsonString(String value) {
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    text.append("\\\"");
+                    break;
+                case '\\':
+                    text.append("\\\\");
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\r':
+                    text.append("\\r");
+                    break;
+                case '\t':
+                    text.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        text.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        text.append(c);
+                    }
+                    break;
+            }
+        }
+        text.append('"');
+    }
+
+    /**
+     * Encodes {@code chars} into the byte buffer, draining it to the channel whenever it fills.
+     * Pages end on a line break, so a surrogate pair is never split between calls.
+     */
+    private void write(CharSequence chars) throws IOException {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                if (result.isError()) {
+                    result.throwException();
+                }
+                return;
+            }
+        }
+    }
+
+    private void finish() throws IOException {
+        CharBuffer empty = CharBuffer.allocate(0);
+        while (encoder.encode(empty, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
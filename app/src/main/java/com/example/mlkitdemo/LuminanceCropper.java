@@ -0,0 +1,77 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Copies a region of a YUV_420_888 frame's luminance plane into an NV21 buffer.
+ *
+ * Barcode and text detectors only look at luminance, so the chroma half of the output is a
+ * constant neutral gray that is written once when a buffer is allocated. Buffers are pooled and
+ * handed back with {@link #recycle(byte[])} once the detector is done with them, so steady-state
+ * cropping does not allocate.
+ */
+class LuminanceCropper {
+
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    private final ConcurrentLinkedQueue<byte[]> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Returns an NV21 buffer holding the luminance inside {@code crop}. Both crop dimensions must
+     * be even, as NV21 requires.
+     */
+    byte[] crop(ImageProxy imageProxy, Rect crop) {
+        int width = crop.width();
+        int height = crop.height();
+        byte[] nv21 = obtain(width * height * 3 / 2, width * height);
+
+        ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+        ByteBuffer buffer = yPlane.getBuffer();
+        int rowStride = yPlane.getRowStride();
+        int pixelStride = yPlane.getPixelStride();
+
+        for (int row = 0; row < height; row++) {
+            int srcOffset = (crop.top + row) * rowStride + crop.left * pixelStride;
+            int dstOffset = row * width;
+            if (pixelStride == 1) {
+                buffer.position(srcOffset);
+                buffer.get(nv21, dstOffset, width);
+            } else {
+                for (int col = 0; col < width; col++) {
+                    nv21[dstOffset + col] = buffer.get(srcOffset + col * pixelStride);
+                }
+            }
+        }
+        buffer.rewind();
+        return nv21;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #crop} to the pool.
+     */
+    void recycle(byte[] buffer) {
+        if (pool.size() < MAX_POOLED_BUFFERS) {
+            pool.offer(buffer);
+        }
+    }
+
+    private byte[] obtain(int size, int lumaSize) {
+        byte[] buffer;
+        while ((buffer = pool.poll()) != null) {
+            if (buffer.length == size) {
+                return buffer;
+            }
+            // Crop size changed; drop buffers of the old size
+        }
+        buffer = new byte[size];
+        Arrays.fill(buffer, lumaSize, size, NEUTRAL_CHROMA);
+        return buffer;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.mlkitdemo;
+
+import android.os.SystemClock;
+
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frame filter that skips recognition while the scene is static and its result is already known.
+ *
+ * For every frame it samples the luminance plane on a coarse {@value #GRID_WIDTH}x
+ * {@value #GRID_HEIGHT} grid (four pixels per cell, about three thousand reads in total) and
+ * compares it with the grid of the last frame that was processed, i.e. the scene the current
+ * result describes, so slow pans and gradual exposure changes add up until they count as motion.
+ * While the mean difference stays under the motion threshold, a few settle frames are still
+ * processed so the result can converge; after that frames are skipped, apart from one refresh per
+ * {@link #STATIC_REFRESH_MS}. Any motion, or a frame that produced no result, brings recognition
+ * straight back to full rate.
+ */
+public class MotionSampler implements FramePipeline.FrameFilter {
+    private static final int GRID_WIDTH = 32;
+    private static final int GRID_HEIGHT = 24;
+    private static final int MOTION_THRESHOLD = 6; // Mean absolute luma difference, 0-255
+    private static final int SETTLE_FRAMES = 5;
+    private static final long STATIC_REFRESH_MS = 1000;
+
+    // Grid of the last processed frame; skipped frames are never compared with each other
+    private int[] referenceGrid = new int[GRID_WIDTH * GRID_HEIGHT];
+    private int[] currentGrid = new int[GRID_WIDTH * GRID_HEIGHT];
+    private boolean hasReference = false;
+    private int staticFrames = 0;
+    private long lastProcessedMs = 0;
+
+    private volatile boolean resultKnown = false;
+
+    /**
+     * Tells the sampler whether the last processed frame produced a usable result. Until it has,
+     * static frames are not skipped.
+     */
+    public void setResultKnown(boolean known) {
+        resultKnown = known;
+    }
+
+    @Override
+    public boolean shouldProcess(ImageProxy imageProxy) {
+        sampleGrid(imageProxy);
+        boolean moving = !hasReference || motionScore() > MOTION_THRESHOLD;
+
+        long now = SystemClock.elapsedRealtime();
+        if (moving) {
+            staticFrames = 0;
+        } else {
+            staticFrames++;
+        }
+
+        boolean process = moving
+                || !resultKnown
+                || staticFrames <= SETTLE_FRAMES
+                || now - lastProcessedMs >= STATIC_REFRESH_MS;
+        if (process) {
+            lastProcessedMs = now;
+            swapGrids();
+        }
+        return process;
+    }
+
+    private void sampleGrid(ImageProxy imageProxy) {
+        ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+        ByteBuffer buffer = yPlane.getBuffer();
+        int rowStride = yPlane.getRowStride();
+        int pixelStride = yPlane.getPixelStride();
+        int cellWidth = imageProxy.getWidth() / GRID_WIDTH;
+        int cellHeight = imageProxy.getHeight() / GRID_HEIGHT;
+        int quarterWidth = cellWidth / 4;
+        int quarterHeight = cellHeight / 4;
+
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            int top = (gy * cellHeight + quarterHeight) * rowStride;
+            int bottom = (gy * cellHeight + 3 * quarterHeight) * rowStride;
+            for (int gx = 0; gx < GRID_WIDTH; gx++) {
+                int left = (gx * cellWidth + quarterWidth) * pixelStride;
+                int right = (gx * cellWidth + 3 * quarterWidth) * pixelStride;
+                currentGrid[gy * GRID_WIDTH + gx] = ((buffer.get(top + left) & 0xFF)
+                        + (buffer.get(top + right) & 0xFF)
+                        + (buffer.get(bottom + left) & 0xFF)
+                        + (buffer.get(bottom + right) & 0xFF)) >> 2;
+            }
+        }
+    }
+
+    private int motionScore() {
+        int total = 0;
+        for (int i = 0; i < currentGrid.length; i++) {
+            total += Math.abs(currentGrid[i] - referenceGrid[i]);
+        }
+        return total / currentGrid.length;
+    }
+
+    private void swapGrids() {
+        int[] swap = referenceGrid;
+        referenceGrid = currentGrid;
+        currentGrid = swap;
+        hasReference = true;
+    }
+}
@@ -1,31 +1,35 @@
 package com.example.mlkitdemo;
 
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.Size;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
-import androidx.annotation.OptIn;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.objects.DetectedObject;
 import com.google.mlkit.vision.objects.ObjectDetection;
 import com.google.mlkit.vision.objects.ObjectDetector;
 import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -33,8 +37,14 @@ import java.util.concurrent.Executors;
 public class ObjectDetectionActivity extends AppCompatActivity {
 
     private static final String TAG = "ObjectDetection";
+    // Under the cache directory; must match res/xml/file_paths.xml
+    private static final String EXPORT_DIRECTORY = "exports";
+
+    // Enough detail for tracking while keeping stream-mode latency low
+    private static final Size ANALYSIS_RESOLUTION = new Size(640, 480);
 
     private PreviewView previewView;
+    private GraphicOverlay overlay;
     private TextView resultText;
     private FloatingActionButton captureButton;
     private MaterialButton switchCameraButton;
@@ -42,6 +52,14 @@ public class ObjectDetectionActivity extends AppCompatActivity {
     private ImageCapture imageCapture;
     private ExecutorService cameraExecutor;
     private ObjectDetector objectDetector;
+    private ObjectDetector liveDetector;
+    private FramePipeline<List<ObjectResult>> livePipeline;
+    // Carries overlay labels of tracked objects across live frames
+    private final ObjectResult.OverlayTextCache overlayTextCache = new ObjectResult.OverlayTextCache();
+    private FramePipeline<List<ObjectResult>> snapshotPipeline;
+    // Reused for every snapshot listing
+    private final StringBuilder resultBuilder = new StringBuilder();
+    private ScanHistory history;
     private CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
     private View rootView;
 
@@ -53,18 +71,33 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         // Initialize views
         rootView = findViewById(android.R.id.content);
         previewView = findViewById(R.id.preview_view);
+        overlay = findViewById(R.id.graphic_overlay);
         resultText = findViewById(R.id.text_output);
         captureButton = findViewById(R.id.capture_button);
         switchCameraButton = findViewById(R.id.switch_camera_button);
         exportButton = findViewById(R.id.export_button);
 
-        // Initially disable the export button until objects are detected
-        exportButton.setEnabled(false);
-
         // Set up camera executor
         cameraExecutor = Executors.newSingleThreadExecutor();
+        history = ScanHistory.getInstance(this);
+
+        // Stream mode tracks objects across frames and keeps their IDs, for the live overlay
+        ObjectDetectorOptions liveOptions = new ObjectDetectorOptions.Builder()
+                .setDetectorMode(ObjectDetectorOptions.STREAM_MODE)
+                .enableClassification()
+                .enableMultipleObjects()
+                .build();
+        liveDetector = ObjectDetection.getClient(liveOptions);
+
+        // Results are converted on the detector's own thread as it completes, so the main thread
+        // only renders them
+        livePipeline = new FramePipeline.Builder<List<ObjectResult>>(image -> liveDetector.process(image)
+                .continueWith(Runnable::run, task -> ObjectResult.fromAll(task.getResult(), overlayTextCache)))
+                .setResultListener(this::drawLiveObjects)
+                .setErrorListener(e -> Log.e(TAG, "Live detection failed", e))
+                .build();
 
-        // Configure the object detector with options
+        // Single image mode is slower but more accurate, for explicit snapshots
         ObjectDetectorOptions options = new ObjectDetectorOptions.Builder()
                 .setDetectorMode(ObjectDetectorOptions.SINGLE_IMAGE_MODE)
                 .enableClassification()  // Make sure classification is enabled
@@ -72,6 +105,16 @@ public class ObjectDetectionActivity extends AppCompatActivity {
                 .build();
         objectDetector = ObjectDetection.getClient(options);
 
+        snapshotPipeline = new FramePipeline.Builder<List<ObjectResult>>(image -> objectDetector.process(image)
+                .continueWith(Runnable::run, task -> ObjectResult.fromAll(task.getResult())))
+                .setResultListener((detectedObjects, frameInfo) -> showDetectionResults(detectedObjects))
+                .setErrorListener(e -> {
+                    resultText.setText("Object detection failed");
+                    Log.e(TAG, "Detection failed", e);
+                    showErrorMessage("Object detection failed: " + e.getMessage());
+                })
+                .build();
+
         // Start camera preview
         startCamera();
 
@@ -110,7 +153,13 @@ public class ObjectDetectionActivity extends AppCompatActivity {
                 // Configure preview use case
                 Preview preview = new Preview.Builder().build();
 
-                // Configure image capture use case with high quality prioritized
+                // Live detection on the analysis stream; the pipeline sets the queue depth
+                ImageAnalysis imageAnalysis = livePipeline.configure(new ImageAnalysis.Builder()
+                                .setTargetResolution(ANALYSIS_RESOLUTION))
+                        .build();
+                imageAnalysis.setAnalyzer(cameraExecutor, livePipeline);
+
+                // Image capture is only used for explicit snapshots
                 imageCapture = new ImageCapture.Builder()
                         .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
                         .build();
@@ -120,7 +169,8 @@ public class ObjectDetectionActivity extends AppCompatActivity {
 
                 // Unbind previous use cases and bind new ones
                 cameraProvider.unbindAll();
-                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageCapture);
+                overlay.clear(); // Boxes from the other camera would be mirrored
+                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis, imageCapture);
 
                 // Show appropriate camera switch icon based on current camera
                 updateCameraSwitchButton();
@@ -152,17 +202,61 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         startCamera();
     }
 
+    /**
+     * Asks for a file format and exports the whole scan history (objects, barcodes and text) to
+     * it. The file is written in the background and then offered to other apps.
+     */
     private void exportLabels() {
-        String labels = resultText.getText().toString();
-        if (labels.equals(getString(R.string.detected_objects_will_appear_here)) || labels.isEmpty()) {
-            showMessage("No detection results available to export");
-            return;
-        }
+        String[] formats = {
+                getString(R.string.export_format_csv),
+                getString(R.string.export_format_jsonl),
+                getString(R.string.export_format_csv_gzip),
+                getString(R.string.export_format_jsonl_gzip)
+        };
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.export_format_title)
+                .setItems(formats, (dialog, which) -> exportHistory(
+                        which % 2 == 0 ? HistoryExporter.Format.CSV : HistoryExporter.Format.JSON_LINES,
+                        which >= 2))
+                .show();
+    }
+
+    private void exportHistory(HistoryExporter.Format format, boolean gzip) {
+        HistoryExporter exporter = new HistoryExporter(format, gzip);
+        exportButton.setEnabled(false);
+        history.export(exporter, null, new File(getCacheDir(), EXPORT_DIRECTORY),
+                new HistoryExporter.ExportListener() {
+                    @Override
+                    public void onExported(File file, long recordCount) {
+                        exportButton.setEnabled(true);
+                        if (recordCount == 0) {
+                            file.delete();
+                            showMessage(getString(R.string.no_history_to_export));
+                            return;
+                        }
+                        showSuccessMessage(getString(R.string.history_exported, recordCount));
+                        shareExport(file, exporter.getMimeType());
+                    }
+
+                    @Override
+                    public void onExportFailed(Exception e) {
+                        exportButton.setEnabled(true);
+                        showErrorMessage(getString(R.string.history_export_failed) + ": " + e.getMessage());
+                    }
+                });
+    }
 
-        // Implement export functionality here
-        // For now, show a success message
-        showSuccessMessage("Detection results exported successfully");
-        Log.d(TAG, "Exporting labels: " + labels);
+    private void shareExport(File file, String mimeType) {
+        Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+        Intent share = new Intent(Intent.ACTION_SEND)
+                .setType(mimeType)
+                .putExtra(Intent.EXTRA_STREAM, uri)
+                .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        try {
+            startActivity(Intent.createChooser(share, getString(R.string.share_export_title)));
+        } catch (ActivityNotFoundException e) {
+            Log.w(TAG, "No app to share " + file, e);
+        }
     }
 
     private void takePhoto() {
@@ -193,76 +287,73 @@ public class ObjectDetectionActivity extends AppCompatActivity {
                 });
     }
 
-    @OptIn(markerClass = ExperimentalGetImage.class)
-    private void processImage(ImageProxy imageProxy) {
-        if (imageProxy.getImage() == null) {
-            resultText.setText("Failed to capture image");
-            imageProxy.close();
-            return;
+    /**
+     * Draws the objects tracked in the latest analysis frame.
+     */
+    private void drawLiveObjects(List<ObjectResult> detectedObjects, FramePipeline.FrameInfo frameInfo) {
+        int lensFacing = cameraSelector == CameraSelector.DEFAULT_FRONT_CAMERA
+                ? CameraSelector.LENS_FACING_FRONT
+                : CameraSelector.LENS_FACING_BACK;
+        overlay.setCameraInfo(frameInfo.getWidth(), frameInfo.getHeight(),
+                frameInfo.getRotationDegrees(), lensFacing);
+
+        GraphicOverlay.Scene scene = overlay.beginScene();
+        for (int i = 0; i < detectedObjects.size(); i++) {
+            ObjectGraphic objectGraphic = scene.recycle(ObjectGraphic.class);
+            if (objectGraphic == null) {
+                objectGraphic = new ObjectGraphic(overlay);
+            }
+            objectGraphic.bind(detectedObjects.get(i));
+            scene.add(objectGraphic);
         }
+        overlay.publish(scene);
+    }
 
-        @SuppressWarnings("UnsafeOptInUsageError")
-        InputImage image = InputImage.fromMediaImage(
-                imageProxy.getImage(),
-                imageProxy.getImageInfo().getRotationDegrees()
-        );
-
+    private void processImage(ImageProxy imageProxy) {
         // Show processing state
         resultText.setText("Processing image...");
 
-        objectDetector.process(image)
-                .addOnSuccessListener(detectedObjects -> {
-                    StringBuilder result = new StringBuilder();
-
-                    if (detectedObjects.isEmpty()) {
-                        result.append("No objects detected in this image.");
-                        exportButton.setEnabled(false);
-                    } else {
-                        result.append("Found ").append(detectedObjects.size()).append(" object(s):\n\n");
-
-                        for (int i = 0; i < detectedObjects.size(); i++) {
-                            DetectedObject object = detectedObjects.get(i);
-                            result.append("Object ").append(i + 1).append(":\n");
-
-                            List<DetectedObject.Label> labels = object.getLabels();
-
-                            if (labels.isEmpty()) {
-                                result.append("• Unidentified object\n");
-                            } else {
-                                // Sort labels by confidence (highest first)
-                                labels.sort((a, b) -> Float.compare(b.getConfidence(), a.getConfidence()));
-
-                                // Display top labels (up to 3)
-                                int labelLimit = Math.min(labels.size(), 3);
-                                for (int j = 0; j < labelLimit; j++) {
-                                    DetectedObject.Label label = labels.get(j);
-                                    result.append("• ")
-                                            .append(label.getText())
-                                            .append(" (")
-                                            .append(String.format("%.1f%%", label.getConfidence() * 100))
-                                            .append(")\n");
-                                }
-                            }
-
-                            if (i < detectedObjects.size() - 1) {
-                                result.append("\n");
-                            }
-                        }
+        // The pipeline converts, detects and releases the captured frame
+        snapshotPipeline.analyze(imageProxy);
+    }
 
-                        // Enable export button if we detected objects
-                        exportButton.setEnabled(true);
+    private void showDetectionResults(List<ObjectResult> detectedObjects) {
+        StringBuilder result = resultBuilder;
+        result.setLength(0);
+
+        if (detectedObjects.isEmpty()) {
+            result.append(getString(R.string.no_objects_detected));
+        } else {
+            result.append("Found ").append(detectedObjects.size()).append(" object(s):\n\n");
+
+            for (int i = 0; i < detectedObjects.size(); i++) {
+                ObjectResult object = detectedObjects.get(i);
+                result.append("Object ").append(i + 1).append(":\n");
+
+                ObjectResult.Label best = object.getBestLabel();
+                if (best == null) {
+                    result.append("• ").append(getString(R.string.unidentified_object)).append('\n');
+                } else {
+                    history.record(ScanRecord.object(best.text, best.confidence));
+
+                    // Labels are already the top ones, highest confidence first
+                    for (int j = 0; j < object.getLabelCount(); j++) {
+                        ObjectResult.Label label = object.getLabel(j);
+                        result.append("• ")
+                                .append(label.text)
+                                .append(" (")
+                                .append(label.getConfidenceText())
+                                .append(")\n");
                     }
+                }
 
-                    resultText.setText(result.toString());
-                    Log.d(TAG, "Detection results: " + result.toString());
-                    imageProxy.close();
-                })
-                .addOnFailureListener(e -> {
-                    resultText.setText("Object detection failed");
-                    Log.e(TAG, "Detection failed", e);
-                    imageProxy.close();
-                    showErrorMessage("Object detection failed: " + e.getMessage());
-                });
+                if (i < detectedObjects.size() - 1) {
+                    result.append("\n");
+                }
+            }
+        }
+
+        resultText.setText(result);
     }
 
     private void showMessage(String message) {
@@ -290,5 +381,9 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         if (objectDetector != null) {
             objectDetector.close();
         }
+        if (liveDetector != null) {
+            liveDetector.close();
+        }
+        history.flushAsync();
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.objects.DetectedObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One detected object, reduced to what the screen and the history need: its box in upright image
+ * coordinates, its tracking ID and its best labels, highest confidence first.
+ *
+ * Built once per detection and then only read, so the text list and the overlay render from the
+ * same result without re-reading the detector output. Top labels are picked in a single pass
+ * without sorting the full label list, and confidence strings come from a shared cache, so
+ * rendering a result does not format anything. In stream mode an {@link OverlayTextCache} also
+ * carries each tracked object's overlay text over to the next frame while its best label and
+ * shown confidence stay the same.
+ */
+public final class ObjectResult {
+    // Most labels shown per object
+    public static final int MAX_LABELS = 3;
+
+    // Confidence strings by tenth of a percent, filled on first use
+    private static final String[] CONFIDENCE_TEXT = new String[1001];
+
+    public final Rect box;
+    // Null in single image mode, and for objects stream mode has not started tracking yet
+    public final Integer trackingId;
+    private final Label[] labels;
+    private String overlayText;
+
+    private ObjectResult(Rect box, Integer trackingId, Label[] labels) {
+        this.box = box;
+        this.trackingId = trackingId;
+        this.labels = labels;
+    }
+
+    /**
+     * Converts every object of a detection. Safe to call off the main thread.
+     */
+    public static List<ObjectResult> fromAll(List<DetectedObject> objects) {
+        List<ObjectResult> results = new ArrayList<>(objects.size());
+        for (DetectedObject object : objects) {
+            results.add(from(object));
+        }
+        return results;
+    }
+
+    /**
+     * Converts every object of a stream mode detection, reusing overlay text from {@code cache}
+     * for tracked objects that still show the same thing. Safe to call off the main thread.
+     */
+    public static List<ObjectResult> fromAll(List<DetectedObject> objects, OverlayTextCache cache) {
+        List<ObjectResult> results = fromAll(objects);
+        cache.fill(results);
+        return results;
+    }
+
+    public static ObjectResult from(DetectedObject object) {
+        return new ObjectResult(object.getBoundingBox(), object.getTrackingId(), topLabels(object.getLabels()));
+    }
+
+    /**
+     * Returns the best {@link #MAX_LABELS} of {@code labels}, highest confidence first. Labels of
+     * equal confidence keep their order.
+     */
+    static Label[] topLabels(List<DetectedObject.Label> labels) {
+        // Keep the best MAX_LABELS by insertion into a small sorted array
+        Label[] top = new Label[MAX_LABELS];
+        int count = 0;
+        for (DetectedObject.Label label : labels) {
+            float confidence = label.getConfidence();
+            if (count == MAX_LABELS && confidence <= top[count - 1].confidence) {
+                continue;
+            }
+            int i = count < MAX_LABELS ? count++ : count - 1;
+            while (i > 0 && top[i - 1].confidence < confidence) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = new Label(label.getText(), confidence, label.getIndex());
+        }
+
+        if (count == MAX_LABELS) {
+            return top;
+        }
+        Label[] result = new Label[count];
+        System.arraycopy(top, 0, result, 0, count);
+        return result;
+    }
+
+    public int getLabelCount() {
+        return labels.length;
+    }
+
+    /**
+     * Returns the label at {@code index}, in order of decreasing confidence.
+     */
+    public Label getLabel(int index) {
+        return labels[index];
+    }
+
+    /**
+     * The best label, or null if the object was not classified.
+     */
+    public Label getBestLabel() {
+        return labels.length > 0 ? labels[0] : null;
+    }
+
+    /**
+     * One-line description for the overlay: tracking ID, best label and its confidence. Built on
+     * first use and kept, unless an {@link OverlayTextCache} already supplied it.
+     */
+    public String getOverlayText() {
+        if (overlayText == null) {
+            overlayText = buildOverlayText();
+        }
+        return overlayText;
+    }
+
+    private String buildOverlayText() {
+        String id = trackingId != null ? "#" + trackingId : "";
+        Label best = getBestLabel();
+        if (best == null) {
+            return id;
+        }
+        return (id.isEmpty() ? "" : id + " ") + best.text + " " + best.getConfidenceText();
+    }
+
+    /**
+     * Whether this result's overlay text would read the same as {@code other}'s: same tracked
+     * object, same best label and the same rounded confidence.
+     */
+    private boolean showsSameAs(ObjectResult other) {
+        Label best = getBestLabel();
+        Label otherBest = other.getBestLabel();
+        if (best == null || otherBest == null) {
+            return best == otherBest;
+        }
+        return best.index == otherBest.index && toTenths(best.confidence) == toTenths(otherBest.confidence);
+    }
+
+    /**
+     * Formats a confidence in [0, 1] as a percentage with one decimal, e.g. "87.5%".
+     */
+    public static String formatConfidence(float confidence) {
+        int tenths = toTenths(confidence);
+        String text = CONFIDENCE_TEXT[tenths];
+        if (text == null) {
+            // Racing threads at worst build the same string twice
+            text = (tenths / 10) + "." + (tenths % 10) + "%";
+            CONFIDENCE_TEXT[tenths] = text;
+        }
+        return text;
+    }
+
+    // Confidence in tenths of a percent, as shown, clamped to [0, 1000]
+    private static int toTenths(float confidence) {
+        return Math.round(Math.max(0f, Math.min(1f, confidence)) * 1000);
+    }
+
+    /**
+     * Keeps the overlay text of each tracked object from one stream frame to the next, keyed by
+     * tracking ID. Stream mode converts every frame into new results; without this, every result
+     * would build its overlay string again although the label and confidence rarely change.
+     * Objects that are no longer detected are dropped on the next frame, so the cache only ever
+     * holds the objects of the latest frame.
+     */
+    public static final class OverlayTextCache {
+        private Map<Integer, ObjectResult> previous = new HashMap<>();
+        private Map<Integer, ObjectResult> current = new HashMap<>();
+
+        synchronized void fill(List<ObjectResult> results) {
+            current.clear();
+            for (int i = 0; i < results.size(); i++) {
+                ObjectResult result = results.get(i);
+                if (result.trackingId == null) {
+                    continue;
+                }
+                ObjectResult last = previous.get(result.trackingId);
+                result.overlayText = last != null && result.showsSameAs(last)
+                        ? last.overlayText
+                        : result.buildOverlayText();
+                current.put(result.trackingId, result);
+            }
+
+            Map<Integer, ObjectResult> swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    /**
+     * A classification label, its confidence and the detector's index for it.
+     */
+    public static final class Label {
+        public final String text;
+        public final float confidence;
+        // Stable ID of the label in the detector's label map
+        public final int index;
+
+        Label(String text, float confidence, int index) {
+            this.text = text;
+            this.confidence = confidence;
+            this.index = index;
+        }
+
+        public String getConfidenceText() {
+            return formatConfidence(confidence);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.text.Text;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Temporal fusion of live OCR results.
+ *
+ * Each frame's lines are matched to lines seen in earlier frames by bounding-box overlap. Every
+ * tracked line collects confidence-weighted votes for the text variants it was read as, and only
+ * joins the transcript once one variant has been seen in enough frames and holds a clear majority
+ * of the votes. A line that reached consensus keeps its text until a different variant wins
+ * outright, so the transcript stops flickering while the recognizer jitters. Votes decay every
+ * frame, so old readings fade, and a variant that keeps leading for {@link #TAKEOVER_FRAMES}
+ * frames in a row replaces the consensus at once, e.g. when the camera pans onto other text.
+ *
+ * Not thread-safe; call from the thread pipeline results are delivered on.
+ */
+public class OcrConsensus {
+    private static final float MATCH_IOU = 0.5f;
+    private static final int MIN_OBSERVATIONS = 3;
+    private static final float CONSENSUS_SHARE = 0.6f;
+    private static final int MAX_MISSED_FRAMES = 5;
+    private static final int MAX_VARIANTS = 8;
+    private static final float MIN_VOTE_WEIGHT = 0.05f;
+    // Weight kept per frame by earlier votes; about a 4 frame half-life
+    private static final float VOTE_DECAY = 0.85f;
+    private static final int TAKEOVER_FRAMES = 3;
+
+    private final List<LineTrack> tracks = new ArrayList<>();
+
+    /**
+     * Folds one frame into the tracks and returns the current consensus transcript, or null if
+     * no line has reached consensus yet.
+     */
+    public String update(Text visionText) {
+        for (LineTrack track : tracks) {
+            track.matchedThisFrame = false;
+        }
+
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                Rect box = line.getBoundingBox();
+                if (box == null) {
+                    continue;
+                }
+                LineTrack track = findTrack(box);
+                if (track == null) {
+                    track = new LineTrack();
+                    tracks.add(track);
+                }
+                track.observe(normalize(line.getText()), line.getConfidence(), box);
+            }
+        }
+
+        for (Iterator<LineTrack> it = tracks.iterator(); it.hasNext(); ) {
+            LineTrack track = it.next();
+            if (!track.matchedThisFrame && ++track.missedFrames > MAX_MISSED_FRAMES) {
+                it.remove();
+            }
+        }
+
+        return buildTranscript();
+    }
+
+    /**
+     * Forgets every tracked line, e.g. when the camera moves to a different page.
+     */
+    public void reset() {
+        tracks.clear();
+    }
+
+    private LineTrack findTrack(Rect box) {
+        LineTrack best = null;
+        float bestIou = MATCH_IOU;
+        for (LineTrack track : tracks) {
+            if (track.matchedThisFrame) {
+                continue;
+            }
+            float iou = intersectionOverUnion(track.box, box);
+            if (iou >= bestIou) {
+                bestIou = iou;
+                best = track;
+            }
+        }
+        return best;
+    }
+
+    private String buildTranscript() {
+        List<LineTrack> agreed = new ArrayList<>();
+        for (LineTrack track : tracks) {
+            if (track.consensusText != null) {
+                agreed.add(track);
+            }
+        }
+        if (agreed.isEmpty()) {
+            return null;
+        }
+
+        // Reading order: top to bottom, then left to right
+        agreed.sort((a, b) -> a.box.top != b.box.top
+                ? Integer.compare(a.box.top, b.box.top)
+                : Integer.compare(a.box.left, b.box.left));
+
+        StringBuilder transcript = new StringBuilder();
+        for (LineTrack track : agreed) {
+            if (transcript.length() > 0) {
+                transcript.append('\n');
+            }
+            transcript.append(track.consensusText);
+        }
+        return transcript.toString();
+    }
+
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    private static float intersectionOverUnion(Rect a, Rect b) {
+        int left = Math.max(a.left, b.left);
+        int top = Math.max(a.top, b.top);
+        int right = Math.min(a.right, b.right);
+        int bottom = Math.min(a.bottom, b.bottom);
+        if (right <= left || bottom <= top) {
+            return 0f;
+        }
+        float intersection = (float) (right - left) * (bottom - top);
+        float union = (float) a.width() * a.height() + (float) b.width() * b.height() - intersection;
+        return union > 0 ? intersection / union : 0f;
+    }
+
+    /**
+     * One physical line of text followed across frames.
+     */
+    private static class LineTrack {
+        final Rect box = new Rect();
+        final Map<String, Float> votes = new HashMap<>();
+        final Map<String, Integer> sightings = new HashMap<>();
+        float totalWeight = 0f;
+        int missedFrames = 0;
+        boolean matchedThisFrame = false;
+        String consensusText;
+        // Variant other than the consensus that led the votes, and for how many frames in a row
+        String challenger;
+        int challengerFrames = 0;
+
+        void observe(String text, float confidence, Rect newBox) {
+            box.set(newBox);
+            matchedThisFrame = true;
+            missedFrames = 0;
+            if (text.isEmpty()) {
+                return;
+            }
+
+            // Older readings fade, so the vote tracks what the line says now
+            for (Map.Entry<String, Float> vote : votes.entrySet()) {
+                vote.setValue(vote.getValue() * VOTE_DECAY);
+            }
+            totalWeight *= VOTE_DECAY;
+
+            float weight = Math.max(confidence, MIN_VOTE_WEIGHT);
+            Float previous = votes.get(text);
+            if (previous == null && votes.size() >= MAX_VARIANTS) {
+                dropWeakestVariant();
+            }
+            votes.put(text, previous != null ? previous + weight : weight);
+            Integer seen = sightings.get(text);
+            sightings.put(text, seen != null ? seen + 1 : 1);
+            totalWeight += weight;
+
+            String leader = null;
+            float leaderWeight = 0f;
+            for (Map.Entry<String, Float> vote : votes.entrySet()) {
+                if (vote.getValue() > leaderWeight) {
+                    leaderWeight = vote.getValue();
+                    leader = vote.getKey();
+                }
+            }
+            if (leader != null
+                    && sightings.get(leader) >= MIN_OBSERVATIONS
+                    && leaderWeight >= CONSENSUS_SHARE * totalWeight) {
+                consensusText = leader;
+            }
+
+            if (consensusText == null || leader == null || leader.equals(consensusText)) {
+                challenger = null;
+                challengerFrames = 0;
+            } else if (leader.equals(challenger)) {
+                if (++challengerFrames >= TAKEOVER_FRAMES) {
+                    takeOver(leader);
+                }
+            } else {
+                challenger = leader;
+                challengerFrames = 1;
+            }
+        }
+
+        /**
+         * Restarts the track with {@code text} as its consensus, dropping every other reading.
+         */
+        private void takeOver(String text) {
+            float weight = votes.get(text);
+            int seen = sightings.get(text);
+            votes.clear();
+            sightings.clear();
+            votes.put(text, weight);
+            sightings.put(text, seen);
+            totalWeight = weight;
+            consensusText = text;
+            challenger = null;
+            challengerFrames = 0;
+        }
+
+        private void dropWeakestVariant() {
+            String weakest = null;
+            float weakestWeight = Float.MAX_VALUE;
+            for (Map.Entry<String, Float> vote : votes.entrySet()) {
+                if (vote.getValue() < weakestWeight) {
+                    weakestWeight = vote.getValue();
+                    weakest = vote.getKey();
+                }
+            }
+            if (weakest != null) {
+                votes.remove(weakest);
+                sightings.remove(weakest);
+                totalWeight -= weakestWeight;
+            }
+        }
+    }
+}
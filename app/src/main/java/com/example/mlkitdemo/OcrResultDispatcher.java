@@ -0,0 +1,153 @@
+package com.example.mlkitdemo;
+
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+
+/**
+ * Delivers live OCR results to the UI without per-frame churn.
+ *
+ * Results submitted between two display frames are coalesced so only the newest one is
+ * considered, at most once per vsync. It is then compared with the text currently shown and only
+ * rendered if it differs meaningfully: identical text is skipped, and so is recognition jitter of
+ * a few characters on long text (up to one edit per {@link #CHARS_PER_TOLERATED_EDIT} characters).
+ *
+ * All methods must be called on the main thread, which is where pipeline results arrive.
+ */
+public class OcrResultDispatcher implements Choreographer.FrameCallback {
+    private static final int CHARS_PER_TOLERATED_EDIT = 50;
+
+    /**
+     * Updates the views with a new result; {@code text} is null when nothing was recognized.
+     */
+    public interface Renderer {
+        void render(String text);
+    }
+
+    private final Renderer renderer;
+
+    private String pendingText;
+    private boolean hasPending = false;
+    private boolean frameScheduled = false;
+
+    private String shownText;
+    private boolean hasShown = false;
+
+    public OcrResultDispatcher(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Offers a new result. It replaces any result still waiting for the next frame.
+     */
+    @MainThread
+    public void submit(String text) {
+        pendingText = text;
+        hasPending = true;
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Forgets what is on screen, so the next result is rendered even if it matches.
+     */
+    @MainThread
+    public void reset() {
+        hasShown = false;
+        shownText = null;
+    }
+
+    /**
+     * Drops any pending result and stops waiting for the next frame.
+     */
+    @MainThread
+    public void cancel() {
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            frameScheduled = false;
+        }
+        hasPending = false;
+        pendingText = null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!hasPending) {
+            return;
+        }
+        String text = pendingText;
+        hasPending = false;
+        pendingText = null;
+
+        if (hasShown && !isMeaningfulChange(shownText, text)) {
+            return;
+        }
+        shownText = text;
+        hasShown = true;
+        renderer.render(text);
+    }
+
+    static boolean isMeaningfulChange(String shown, String candidate) {
+        if (shown == null || candidate == null) {
+            return shown != candidate;
+        }
+        if (shown.equals(candidate)) {
+            return false;
+        }
+        int tolerance = Math.max(shown.length(), candidate.length()) / CHARS_PER_TOLERATED_EDIT;
+        return tolerance == 0 || !withinEditDistance(shown, candidate, tolerance);
+    }
+
+    /**
+     * Returns whether the Levenshtein distance between {@code a} and {@code b} is at most
+     * {@code max}. Only a diagonal band of width {@code 2 * max + 1} is evaluated, and the scan
+     * stops as soon as every cell in a row exceeds {@code max}, so the cost is O(n * max).
+     */
+    static boolean withinEditDistance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return false;
+        }
+
+        int outside = max + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= max ? j : outside;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            current[0] = i <= max ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost,
+                        Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > max) {
+                return false;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m] <= max;
+    }
+}
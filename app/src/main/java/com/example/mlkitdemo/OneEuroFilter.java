@@ -0,0 +1,68 @@
+package com.example.mlkitdemo;
+
+/**
+ * One-euro filter for a single noisy signal, such as a box coordinate over time.
+ *
+ * A low-pass filter whose cutoff rises with the signal's speed: a still face is smoothed heavily,
+ * so jitter disappears, while a moving face is barely smoothed, so the box does not lag behind.
+ * The filtered speed is kept as well, which lets callers extrapolate between measurements.
+ */
+public class OneEuroFilter {
+    private final float minCutoffHz;
+    private final float beta;
+    private final float derivativeCutoffHz;
+
+    private boolean initialized = false;
+    private float value;
+    private float velocity; // Units per second
+    private long lastTimeMs;
+
+    public OneEuroFilter(float minCutoffHz, float beta, float derivativeCutoffHz) {
+        this.minCutoffHz = minCutoffHz;
+        this.beta = beta;
+        this.derivativeCutoffHz = derivativeCutoffHz;
+    }
+
+    /**
+     * Folds in a measurement taken at {@code timeMs} and returns the filtered value.
+     */
+    public float filter(float measurement, long timeMs) {
+        if (!initialized || timeMs <= lastTimeMs) {
+            if (!initialized) {
+                value = measurement;
+                velocity = 0f;
+                initialized = true;
+            }
+            lastTimeMs = timeMs;
+            return value;
+        }
+
+        float dt = (timeMs - lastTimeMs) / 1000f;
+        lastTimeMs = timeMs;
+
+        float rawVelocity = (measurement - value) / dt;
+        velocity += alpha(derivativeCutoffHz, dt) * (rawVelocity - velocity);
+
+        float cutoff = minCutoffHz + beta * Math.abs(velocity);
+        value += alpha(cutoff, dt) * (measurement - value);
+        return value;
+    }
+
+    /**
+     * Returns the filtered value moved forward along the filtered velocity to {@code timeMs},
+     * extrapolating at most {@code maxAheadMs} past the last measurement.
+     */
+    public float predict(long timeMs, long maxAheadMs) {
+        long aheadMs = Math.min(Math.max(timeMs - lastTimeMs, 0), maxAheadMs);
+        return value + velocity * aheadMs / 1000f;
+    }
+
+    public long getLastTimeMs() {
+        return lastTimeMs;
+    }
+
+    private static float alpha(float cutoffHz, float dt) {
+        float tau = 1f / (2f * (float) Math.PI * cutoffHz);
+        return 1f / (1f + tau / dt);
+    }
+}
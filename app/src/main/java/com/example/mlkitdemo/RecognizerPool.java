@@ -0,0 +1,138 @@
+package com.example.mlkitdemo;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions;
+import com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App-wide pool of script-specific text recognizers.
+ *
+ * A recognizer is only created the first time its script is requested, and is shared by every
+ * screen from then on. Recognizers that have not been used for {@link #IDLE_TIMEOUT_MS} and have
+ * no call in flight are closed to give their model memory back; the next request recreates them.
+ */
+public final class RecognizerPool {
+    private static final long IDLE_TIMEOUT_MS = 60_000;
+
+    /**
+     * Scripts with a bundled recognition model. The Chinese and Korean models also read Latin.
+     */
+    public enum Script {
+        LATIN,
+        CHINESE,
+        KOREAN
+    }
+
+    private static volatile RecognizerPool instance;
+
+    private final Map<Script, Entry> entries = new EnumMap<>(Script.class);
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "recognizer-pool-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean reapScheduled = false;
+
+    private RecognizerPool() {
+    }
+
+    public static RecognizerPool getInstance() {
+        if (instance == null) {
+            synchronized (RecognizerPool.class) {
+                if (instance == null) {
+                    instance = new RecognizerPool();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Runs recognition with the recognizer for {@code script}, creating it if needed. The
+     * recognizer cannot be closed for idleness while this call is in flight.
+     */
+    public Task<Text> process(Script script, InputImage image) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(script);
+            if (entry == null) {
+                entry = new Entry(createRecognizer(script));
+                entries.put(script, entry);
+            }
+            entry.inFlight++;
+            entry.lastUsedMs = SystemClock.elapsedRealtime();
+            scheduleReapLocked();
+        }
+
+        final Entry used = entry;
+        try {
+            return used.recognizer.process(image).addOnCompleteListener(task -> release(used));
+        } catch (RuntimeException e) {
+            release(used);
+            throw e;
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.inFlight--;
+        entry.lastUsedMs = SystemClock.elapsedRealtime();
+    }
+
+    private static TextRecognizer createRecognizer(Script script) {
+        switch (script) {
+            case CHINESE:
+                return TextRecognition.getClient(new ChineseTextRecognizerOptions.Builder().build());
+            case KOREAN:
+                return TextRecognition.getClient(new KoreanTextRecognizerOptions.Builder().build());
+            case LATIN:
+            default:
+                return TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+        }
+    }
+
+    private void scheduleReapLocked() {
+        if (!reapScheduled) {
+            reapScheduled = true;
+            reaper.schedule(this::reapIdle, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void reapIdle() {
+        reapScheduled = false;
+        long now = SystemClock.elapsedRealtime();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.inFlight == 0 && now - entry.lastUsedMs >= IDLE_TIMEOUT_MS) {
+                entry.recognizer.close();
+                it.remove();
+            }
+        }
+        if (!entries.isEmpty()) {
+            scheduleReapLocked();
+        }
+    }
+
+    private static final class Entry {
+        final TextRecognizer recognizer;
+        int inFlight = 0;
+        long lastUsedMs;
+
+        Entry(TextRecognizer recognizer) {
+            this.recognizer = recognizer;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.mlkitdemo;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.Build;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.util.Log;
+
+/**
+ * Low-latency scan confirmation: a short sound plus a vibration.
+ *
+ * The notification sound is decoded once into a {@link SoundPool} when the component is created
+ * and the vibrator service and vibration pattern are looked up once, so {@link #play()} does not
+ * allocate or decode anything and can be called at any scan rate from any thread.
+ */
+public class ScanFeedback {
+    private static final String TAG = "ScanFeedback";
+    private static final long VIBRATION_MS = 300;
+    private static final int MAX_STREAMS = 2; // Lets back-to-back scans overlap instead of cutting off
+
+    private final SoundPool soundPool;
+    private final int soundId;
+    private volatile boolean soundLoaded = false;
+
+    private final Vibrator vibrator;
+    private final VibrationEffect vibrationEffect;
+
+    public ScanFeedback(Context context) {
+        AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(MAX_STREAMS)
+                .setAudioAttributes(audioAttributes)
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> {
+            soundLoaded = status == 0;
+            if (!soundLoaded) {
+                Log.e(TAG, "Failed to load notification sound, status " + status);
+            }
+        });
+        soundId = soundPool.load(context, R.raw.notification, 1);
+
+        Vibrator systemVibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        vibrator = systemVibrator != null && systemVibrator.hasVibrator() ? systemVibrator : null;
+        vibrationEffect = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? VibrationEffect.createOneShot(VIBRATION_MS, VibrationEffect.DEFAULT_AMPLITUDE)
+                : null;
+    }
+
+    /**
+     * Plays the confirmation sound and vibration. Sound is skipped until decoding has finished.
+     */
+    public void play() {
+        if (soundLoaded) {
+            soundPool.play(soundId, 1f, 1f, 1, 0, 1f);
+        }
+
+        if (vibrator != null) {
+            if (vibrationEffect != null) {
+                vibrator.vibrate(vibrationEffect);
+            } else {
+                vibrator.vibrate(VIBRATION_MS);
+            }
+        }
+    }
+
+    /**
+     * Frees the decoded sound. The component cannot be used afterwards.
+     */
+    public void release() {
+        soundPool.release();
+    }
+}
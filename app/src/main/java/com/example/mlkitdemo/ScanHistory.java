@@ -0,0 +1,236 @@
+package com.example.mlkitdemo;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * App-wide entry point to the persisted scan history.
+ *
+ * Writes never touch the database on the calling thread: {@link #record(ScanRecord)} only queues
+ * the record. A dedicated writer thread inserts queued records in one transaction per
+ * {@link #BATCH_SIZE} records, or after {@link #FLUSH_DELAY_MS} for a partial batch, whichever
+ * comes first. Reads are keyset-paged and run on a separate reader thread so a long export or
+ * history page never delays pending writes.
+ */
+public class ScanHistory {
+    private static final String TAG = "ScanHistory";
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_DELAY_MS = 500;
+    // Matches scored per page; ranking covers every match while memory stays bounded
+    private static final int SEARCH_PAGE_SIZE = 500;
+    // Best first; ties go to the newer record
+    private static final Comparator<TextSearchMatch> BY_RELEVANCE = (a, b) -> a.rank != b.rank
+            ? Double.compare(b.rank, a.rank)
+            : Long.compare(b.createdAt, a.createdAt);
+
+    private static volatile ScanHistory instance;
+
+    private final ScanRecordDao dao;
+    private final ScheduledExecutorService writeExecutor =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "scan-history-writer"));
+    private final ExecutorService readExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "scan-history-reader"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final ConcurrentLinkedQueue<ScanRecord> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private ScanHistory(Context context) {
+        dao = HistoryDatabase.getInstance(context).scanRecordDao();
+    }
+
+    public static ScanHistory getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ScanHistory.class) {
+                if (instance == null) {
+                    instance = new ScanHistory(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a record for the next batch. Safe to call from any thread, including analyzers.
+     */
+    public void record(ScanRecord record) {
+        pending.offer(record);
+        if (pendingCount.incrementAndGet() >= BATCH_SIZE) {
+            writeExecutor.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            writeExecutor.schedule(() -> {
+                flushScheduled.set(false);
+                flush();
+            }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes everything queued so far without waiting for the batch timer. Runs asynchronously.
+     */
+    public void flushAsync() {
+        writeExecutor.execute(this::flush);
+    }
+
+    /**
+     * Loads one page of history, newest first, and delivers it on the main thread.
+     *
+     * @param type     a {@code ScanRecord.TYPE_*} constant, or null for every type
+     * @param beforeId {@link Long#MAX_VALUE} for the first page, otherwise the last id of the
+     *                 previous page
+     */
+    public void loadPage(String type, long beforeId, int limit, Consumer<List<ScanRecord>> callback) {
+        readExecutor.execute(() -> {
+            List<ScanRecord> page = type == null
+                    ? dao.loadPage(beforeId, limit)
+                    : dao.loadPageOfType(type, beforeId, limit);
+            mainHandler.post(() -> callback.accept(page));
+        });
+    }
+
+    /**
+     * Writes the history of {@code type}, or of every type if it is null, to a new file in
+     * {@code directory} and reports it to {@code listener} on the main thread. Records still
+     * queued are written to the database first, so the export includes them. Runs on the reader
+     * thread, streaming page by page.
+     */
+    public void export(HistoryExporter exporter, String type, File directory,
+                       HistoryExporter.ExportListener listener) {
+        readExecutor.execute(() -> {
+            File file = new File(directory, exporter.getFileName(System.currentTimeMillis()));
+            try {
+                writeExecutor.submit(this::flush).get();
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Cannot create " + directory);
+                }
+                long count = exporter.export(dao, type, file);
+                mainHandler.post(() -> listener.onExported(file, count));
+            } catch (Exception e) {
+                Log.e(TAG, "History export to " + file + " failed", e);
+                mainHandler.post(() -> listener.onExportFailed(e));
+            }
+        });
+    }
+
+    /**
+     * Searches recognized text history for records containing every word of {@code userQuery}
+     * as a prefix, and delivers the best {@code limit} hits on the main thread, most relevant
+     * first. Matching runs on the FTS4 index, never on a table scan. Every match is scored,
+     * page by page, into a heap of the best {@code limit}; text and snippets are then loaded for
+     * those hits only.
+     */
+    public void searchText(String userQuery, int limit, Consumer<List<TextSearchHit>> callback) {
+        String matchQuery = toPrefixQuery(userQuery);
+        readExecutor.execute(() -> {
+            List<TextSearchHit> top = new ArrayList<>();
+            if (!matchQuery.isEmpty() && limit > 0) {
+                try {
+                    top = search(matchQuery, limit);
+                } catch (Exception e) {
+                    Log.e(TAG, "Text history search failed for: " + userQuery, e);
+                }
+            }
+            List<TextSearchHit> result = top;
+            mainHandler.post(() -> callback.accept(result));
+        });
+    }
+
+    private List<TextSearchHit> search(String matchQuery, int limit) {
+        // Worst of the kept hits at the head, so it is the one a better hit replaces
+        PriorityQueue<TextSearchMatch> best = new PriorityQueue<>(limit, BY_RELEVANCE.reversed());
+        long beforeId = Long.MAX_VALUE;
+        while (true) {
+            List<TextSearchMatch> page = dao.searchPage(matchQuery, ScanRecord.TYPE_TEXT, beforeId, SEARCH_PAGE_SIZE);
+            for (TextSearchMatch match : page) {
+                match.rank = match.score();
+                if (best.size() < limit) {
+                    best.add(match);
+                } else if (BY_RELEVANCE.compare(match, best.peek()) < 0) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+            if (page.size() < SEARCH_PAGE_SIZE) {
+                break;
+            }
+            beforeId = page.get(page.size() - 1).id;
+        }
+        if (best.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = new ArrayList<>(best.size());
+        for (TextSearchMatch match : best) {
+            ids.add(match.id);
+        }
+        List<TextSearchHit> hits = dao.loadHits(matchQuery, ids);
+        for (TextSearchHit hit : hits) {
+            hit.rank = hit.score();
+        }
+        hits.sort(BY_RELEVANCE);
+        return hits;
+    }
+
+    /**
+     * Turns free text into an FTS4 query that requires every word as a prefix ("inv 20" matches
+     * "invoice 2024"). Punctuation is dropped so user input can never form FTS operators.
+     */
+    static String toPrefixQuery(String userQuery) {
+        if (userQuery == null) {
+            return "";
+        }
+        StringBuilder query = new StringBuilder();
+        for (String term : userQuery.split("[^\\p{L}\\p{N}]+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(term).append('*');
+        }
+        return query.toString();
+    }
+
+    private void flush() {
+        List<ScanRecord> batch = new ArrayList<>(BATCH_SIZE);
+        ScanRecord record;
+        while ((record = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(record);
+            if (batch.size() == BATCH_SIZE) {
+                insert(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+    }
+
+    private void insert(List<ScanRecord> batch) {
+        try {
+            dao.insertAll(batch);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write " + batch.size() + " history records", e);
+        }
+    }
+}
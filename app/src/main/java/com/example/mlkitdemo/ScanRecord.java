@@ -0,0 +1,61 @@
+package com.example.mlkitdemo;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One persisted detection result: a barcode, a recognized text capture or a detected object.
+ */
+@Entity(tableName = "scan_records", indices = {@Index(value = {"type", "id"})})
+public class ScanRecord {
+    public static final String TYPE_BARCODE = "BARCODE";
+    public static final String TYPE_TEXT = "TEXT";
+    public static final String TYPE_OBJECT = "OBJECT";
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    /**
+     * One of {@link #TYPE_BARCODE}, {@link #TYPE_TEXT} or {@link #TYPE_OBJECT}.
+     */
+    @NonNull
+    public String type = TYPE_BARCODE;
+
+    /**
+     * Barcode raw value, recognized text, or the object's top label.
+     */
+    @NonNull
+    public String content = "";
+
+    /**
+     * Type-specific extra information, e.g. the barcode format or the label confidence.
+     */
+    public String detail;
+
+    @ColumnInfo(name = "created_at")
+    public long createdAt;
+
+    public static ScanRecord barcode(String rawValue, int format) {
+        return create(TYPE_BARCODE, rawValue, String.valueOf(format));
+    }
+
+    public static ScanRecord text(String text) {
+        return create(TYPE_TEXT, text, null);
+    }
+
+    public static ScanRecord object(String label, float confidence) {
+        return create(TYPE_OBJECT, label, String.valueOf(confidence));
+    }
+
+    private static ScanRecord create(String type, String content, String detail) {
+        ScanRecord record = new ScanRecord();
+        record.type = type;
+        record.content = content != null ? content : "";
+        record.detail = detail;
+        record.createdAt = System.currentTimeMillis();
+        return record;
+    }
+}
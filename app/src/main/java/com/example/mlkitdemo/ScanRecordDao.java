@@ -0,0 +1,55 @@
+package com.example.mlkitdemo;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data access for {@link ScanRecord}. Reads are keyset-paged, newest first: pass
+ * {@link Long#MAX_VALUE} for the first page and the last id of the previous page afterwards.
+ */
+@Dao
+public interface ScanRecordDao {
+
+    /**
+     * Inserts a batch of records in a single transaction.
+     */
+    @Insert
+    void insertAll(List<ScanRecord> records);
+
+    @Query("SELECT * FROM scan_records WHERE id < :beforeId ORDER BY id DESC LIMIT :limit")
+    List<ScanRecord> loadPage(long beforeId, int limit);
+
+    @Query("SELECT * FROM scan_records WHERE type = :type AND id < :beforeId ORDER BY id DESC LIMIT :limit")
+    List<ScanRecord> loadPageOfType(String type, long beforeId, int limit);
+
+    /**
+     * One keyset page of full-text matches over records of one type, newest first. {@code query}
+     * is an FTS4 MATCH expression. Only the id, time and match info are loaded, enough to rank
+     * every match with {@link TextSearchMatch#score()} before fetching text for the best ones.
+     */
+    @Query("SELECT scan_records.id AS id, scan_records.created_at AS createdAt, "
+            + "matchinfo(scan_records_fts, 'pcx') AS matchInfo "
+            + "FROM scan_records_fts JOIN scan_records ON scan_records.id = scan_records_fts.docid "
+            + "WHERE scan_records_fts MATCH :query AND scan_records.type = :type "
+            + "AND scan_records.id < :beforeId "
+            + "ORDER BY scan_records.id DESC LIMIT :limit")
+    List<TextSearchMatch> searchPage(String query, String type, long beforeId, int limit);
+
+    /**
+     * Loads content and snippet of the given matches of {@code query}. The snippet markers are
+     * {@link TextSearchHit#MATCH_START} and {@link TextSearchHit#MATCH_END}. Unordered.
+     */
+    @Query("SELECT scan_records.id AS id, scan_records.content AS content, "
+            + "scan_records.created_at AS createdAt, "
+            + "snippet(scan_records_fts, '\uE000', '\uE001', '…', -1, 12) AS snippet, "
+            + "matchinfo(scan_records_fts, 'pcx') AS matchInfo "
+            + "FROM scan_records_fts JOIN scan_records ON scan_records.id = scan_records_fts.docid "
+            + "WHERE scan_records_fts MATCH :query AND scan_records.id IN (:ids)")
+    List<TextSearchHit> loadHits(String query, List<Long> ids);
+
+    @Query("SELECT COUNT(*) FROM scan_records")
+    int count();
+}
@@ -0,0 +1,16 @@
+package com.example.mlkitdemo;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * FTS4 index over {@link ScanRecord#content}. It is an external-content table: the text lives only
+ * in {@code scan_records}, and triggers keep the index in step with every insert, update and delete.
+ */
+@Fts4(contentEntity = ScanRecord.class)
+@Entity(tableName = "scan_records_fts")
+public class ScanRecordFts {
+    @NonNull
+    public String content = "";
+}
@@ -0,0 +1,89 @@
+package com.example.mlkitdemo;
+
+import com.google.mlkit.vision.text.Text;
+
+/**
+ * Chooses which recognizer script to use for the next frame.
+ *
+ * With a fixed script set it always returns that. In auto mode it relies on two cheap signals
+ * from results that were produced anyway: recognized Hangul or Han characters pin the matching
+ * script, and a run of low-confidence frames means the current model cannot read the page, so
+ * the next script is tried.
+ */
+public class ScriptDetector {
+    private static final float LOW_CONFIDENCE = 0.5f;
+    private static final int LOW_CONFIDENCE_FRAMES_BEFORE_PROBE = 5;
+
+    private volatile boolean auto = true;
+    private volatile RecognizerPool.Script script = RecognizerPool.Script.LATIN;
+    private int lowConfidenceFrames = 0;
+
+    /**
+     * Fixes the script, or returns to auto-detection when {@code fixedScript} is null.
+     */
+    public void setFixedScript(RecognizerPool.Script fixedScript) {
+        auto = fixedScript == null;
+        script = fixedScript != null ? fixedScript : RecognizerPool.Script.LATIN;
+        lowConfidenceFrames = 0;
+    }
+
+    public boolean isAuto() {
+        return auto;
+    }
+
+    public RecognizerPool.Script getScript() {
+        return script;
+    }
+
+    /**
+     * Feeds back a recognition result. Returns true if the script changed, which makes results
+     * from earlier frames incomparable with the next ones.
+     */
+    public boolean onResult(Text visionText) {
+        if (!auto) {
+            return false;
+        }
+
+        int lines = 0;
+        float confidenceSum = 0f;
+        boolean hangul = false;
+        boolean han = false;
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                lines++;
+                confidenceSum += line.getConfidence();
+            }
+        }
+        String text = visionText.getText();
+        // By code point, so supplementary characters such as CJK Extension B are not read as
+        // two unknown surrogates
+        for (int i = 0; i < text.length() && !hangul; ) {
+            int codePoint = text.codePointAt(i);
+            Character.UnicodeScript charScript = Character.UnicodeScript.of(codePoint);
+            hangul = charScript == Character.UnicodeScript.HANGUL;
+            han |= charScript == Character.UnicodeScript.HAN;
+            i += Character.charCount(codePoint);
+        }
+
+        RecognizerPool.Script detected = script;
+        if (hangul) {
+            detected = RecognizerPool.Script.KOREAN;
+        } else if (han) {
+            detected = RecognizerPool.Script.CHINESE;
+        } else if (lines > 0 && confidenceSum / lines < LOW_CONFIDENCE) {
+            if (++lowConfidenceFrames >= LOW_CONFIDENCE_FRAMES_BEFORE_PROBE) {
+                RecognizerPool.Script[] scripts = RecognizerPool.Script.values();
+                detected = scripts[(script.ordinal() + 1) % scripts.length];
+            }
+        } else if (lines > 0) {
+            lowConfidenceFrames = 0;
+        }
+
+        if (detected != script) {
+            script = detected;
+            lowConfidenceFrames = 0;
+            return true;
+        }
+        return false;
+    }
+}
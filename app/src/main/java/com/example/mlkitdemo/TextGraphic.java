@@ -0,0 +1,84 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.google.mlkit.vision.text.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Graphic instance for rendering the blocks of one recognition result, plus an optional
+ * highlighted selection (a word or a line picked by tapping).
+ *
+ * Instances are reused across frames with {@link #bind}, which refills the same box list.
+ */
+public class TextGraphic extends GraphicOverlay.Graphic {
+    private static final float BOX_STROKE_WIDTH = 4.0f;
+
+    private static final int BOX_COLOR = Color.parseColor("#4285F4"); // Google Blue
+    private static final int SELECTION_COLOR = Color.parseColor("#664285F4");
+
+    // Paints are only used on the UI thread, so every graphic can share them
+    private static final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final Paint selectionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    static {
+        boxPaint.setColor(BOX_COLOR);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(BOX_STROKE_WIDTH);
+
+        selectionPaint.setColor(SELECTION_COLOR);
+        selectionPaint.setStyle(Paint.Style.FILL);
+    }
+
+    private final List<Rect> blockBoxes = new ArrayList<>();
+    private final RectF rect = new RectF();
+    private Rect selection;
+
+    public TextGraphic(GraphicOverlay overlay) {
+        super(overlay);
+    }
+
+    /**
+     * Points this graphic at the blocks of {@code visionText} and clears the selection.
+     */
+    public void bind(Text visionText) {
+        blockBoxes.clear();
+        selection = null;
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            Rect box = block.getBoundingBox();
+            if (box != null) {
+                blockBoxes.add(box);
+            }
+        }
+    }
+
+    /**
+     * Highlights {@code box}, in image coordinates, or removes the highlight if it is null.
+     */
+    public void setSelection(Rect box) {
+        selection = box;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        for (int i = 0; i < blockBoxes.size(); i++) {
+            mapToView(blockBoxes.get(i));
+            canvas.drawRect(rect, boxPaint);
+        }
+        if (selection != null) {
+            mapToView(selection);
+            canvas.drawRect(rect, selectionPaint);
+        }
+    }
+
+    private void mapToView(Rect box) {
+        rect.set(box);
+        mapRect(rect);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.text.Text;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index over the words of one recognition result, for hit-testing taps.
+ *
+ * Element boxes are bucketed into a uniform grid whose cell size follows the median word height,
+ * so a lookup only inspects the few boxes registered in the cells under the touch point instead
+ * of every word on the page. Boxes and buckets are stored flat (bounds as left, top, right,
+ * bottom quadruples; one offsets array and one items array for the cells), so a dense page costs
+ * a few int arrays rather than an object per word and a list per cell.
+ *
+ * Coordinates are in the image space of the {@link Text} the index was built from.
+ */
+public class TextLayoutIndex {
+    private static final int MIN_CELL_SIZE = 16;
+    private static final int MAX_CELLS = 4096;
+
+    private final int[] elementBounds;
+    private final String[] elementTexts;
+    private final int[] elementLines;
+    private final int[] lineBounds;
+    private final String[] lineTexts;
+
+    private int originX;
+    private int originY;
+    private int cellSize = MIN_CELL_SIZE;
+    private int columns;
+    private int rows;
+    private int[] cellStart = new int[1];
+    private int[] cellItems = new int[0];
+
+    public TextLayoutIndex(Text visionText) {
+        // Counting pass, so every array is allocated once at its final size
+        int lineCount = 0;
+        int elementCount = 0;
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                if (line.getBoundingBox() == null) {
+                    continue;
+                }
+                lineCount++;
+                for (Text.Element element : line.getElements()) {
+                    if (!isEmpty(element.getBoundingBox())) {
+                        elementCount++;
+                    }
+                }
+            }
+        }
+
+        elementBounds = new int[elementCount * 4];
+        elementTexts = new String[elementCount];
+        elementLines = new int[elementCount];
+        lineBounds = new int[lineCount * 4];
+        lineTexts = new String[lineCount];
+
+        int lineIndex = 0;
+        int elementIndex = 0;
+        for (Text.TextBlock block : visionText.getTextBlocks()) {
+            for (Text.Line line : block.getLines()) {
+                Rect lineBox = line.getBoundingBox();
+                if (lineBox == null) {
+                    continue;
+                }
+                putBounds(lineBounds, lineIndex, lineBox);
+                lineTexts[lineIndex] = line.getText();
+                for (Text.Element element : line.getElements()) {
+                    Rect box = element.getBoundingBox();
+                    if (!isEmpty(box)) {
+                        putBounds(elementBounds, elementIndex, box);
+                        elementTexts[elementIndex] = element.getText();
+                        elementLines[elementIndex] = lineIndex;
+                        elementIndex++;
+                    }
+                }
+                lineIndex++;
+            }
+        }
+        buildGrid();
+    }
+
+    /**
+     * Builds an index from flat bounds: {@code elementBounds} and {@code lineBounds} hold a left,
+     * top, right, bottom quadruple per element and per line, and {@code elementLines} the line
+     * of each element.
+     */
+    TextLayoutIndex(int[] elementBounds, String[] elementTexts, int[] elementLines,
+                    int[] lineBounds, String[] lineTexts) {
+        this.elementBounds = elementBounds;
+        this.elementTexts = elementTexts;
+        this.elementLines = elementLines;
+        this.lineBounds = lineBounds;
+        this.lineTexts = lineTexts;
+        buildGrid();
+    }
+
+    /**
+     * Returns the element whose box, grown by {@code slop} on every side, contains the point and
+     * whose centre is closest to it, or -1 if there is none.
+     */
+    public int findElement(float x, float y, float slop) {
+        if (elementTexts.length == 0) {
+            return -1;
+        }
+        int firstColumn = Math.max(0, cellOf(x - slop, originX));
+        int lastColumn = Math.min(columns - 1, cellOf(x + slop, originX));
+        int firstRow = Math.max(0, cellOf(y - slop, originY));
+        int lastRow = Math.min(rows - 1, cellOf(y + slop, originY));
+
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int element = cellItems[i];
+                    int left = elementBounds[element * 4];
+                    int top = elementBounds[element * 4 + 1];
+                    int right = elementBounds[element * 4 + 2];
+                    int bottom = elementBounds[element * 4 + 3];
+                    if (x < left - slop || x > right + slop || y < top - slop || y > bottom + slop) {
+                        continue;
+                    }
+                    float dx = (left + right) * 0.5f - x;
+                    float dy = (top + bottom) * 0.5f - y;
+                    float distance = dx * dx + dy * dy;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = element;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public int getElementCount() {
+        return elementTexts.length;
+    }
+
+    public String getElementText(int element) {
+        return elementTexts[element];
+    }
+
+    /**
+     * Returns a new rect with the bounds of {@code element}.
+     */
+    public Rect getElementBox(int element) {
+        return toRect(elementBounds, element);
+    }
+
+    public String getLineText(int element) {
+        return lineTexts[elementLines[element]];
+    }
+
+    /**
+     * Returns a new rect with the bounds of the line {@code element} belongs to.
+     */
+    public Rect getLineBox(int element) {
+        return toRect(lineBounds, elementLines[element]);
+    }
+
+    private void buildGrid() {
+        int count = elementTexts.length;
+        if (count == 0) {
+            columns = 0;
+            rows = 0;
+            return;
+        }
+
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            left = Math.min(left, elementBounds[i * 4]);
+            top = Math.min(top, elementBounds[i * 4 + 1]);
+            right = Math.max(right, elementBounds[i * 4 + 2]);
+            bottom = Math.max(bottom, elementBounds[i * 4 + 3]);
+            heights[i] = elementBounds[i * 4 + 3] - elementBounds[i * 4 + 1];
+        }
+        Arrays.sort(heights);
+        cellSize = Math.max(MIN_CELL_SIZE, heights[count / 2]);
+        // Keep the grid bounded when a few tiny words span a large page
+        while ((long) ((right - left) / cellSize + 1) * ((bottom - top) / cellSize + 1) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+        originX = left;
+        originY = top;
+        columns = (right - left) / cellSize + 1;
+        rows = (bottom - top) / cellSize + 1;
+
+        // Counting pass, then prefix sums into offsets, then a fill pass
+        cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < count; i++) {
+            for (int row = cellOfSide(i, 1); row <= cellOfSide(i, 3); row++) {
+                for (int column = cellOfSide(i, 0); column <= cellOfSide(i, 2); column++) {
+                    cellStart[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellItems = new int[cellStart[columns * rows]];
+        int[] fill = Arrays.copyOf(cellStart, columns * rows);
+        for (int i = 0; i < count; i++) {
+            for (int row = cellOfSide(i, 1); row <= cellOfSide(i, 3); row++) {
+                for (int column = cellOfSide(i, 0); column <= cellOfSide(i, 2); column++) {
+                    cellItems[fill[row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    // Grid cell under one side of an element box: 0 left, 1 top, 2 right, 3 bottom
+    private int cellOfSide(int element, int side) {
+        return cellOf(elementBounds[element * 4 + side], side % 2 == 0 ? originX : originY);
+    }
+
+    private int cellOf(float coordinate, int origin) {
+        return (int) Math.floor((coordinate - origin) / cellSize);
+    }
+
+    private static boolean isEmpty(Rect box) {
+        return box == null || box.left >= box.right || box.top >= box.bottom;
+    }
+
+    private static void putBounds(int[] bounds, int index, Rect box) {
+        bounds[index * 4] = box.left;
+        bounds[index * 4 + 1] = box.top;
+        bounds[index * 4 + 2] = box.right;
+        bounds[index * 4 + 3] = box.bottom;
+    }
+
+    private static Rect toRect(int[] bounds, int index) {
+        return new Rect(bounds[index * 4], bounds[index * 4 + 1], bounds[index * 4 + 2], bounds[index * 4 + 3]);
+    }
+}
@@ -7,23 +7,33 @@ import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.Size;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.app.SearchManager;
+import android.content.ActivityNotFoundException;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.widget.HorizontalScrollView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.OptIn;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
@@ -31,14 +41,15 @@ import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+import com.google.mlkit.vision.text.Text;
 
-import java.util.Objects;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -48,21 +59,52 @@ public class TextRecognitionActivity extends AppCompatActivity {
 
     private static final String TAG = "TextRecognitionActivity";
     private static final int CAMERA_PERMISSION_CODE = 100;
+    // Recognizer calls allowed in flight at once, overlapping camera delivery with OCR
+    private static final int ANALYSIS_IN_FLIGHT = 2;
+    private static final int HISTORY_SEARCH_LIMIT = 20;
+    // Live frames only need to be legible; Freeze takes a full-resolution still instead
+    private static final Size ANALYSIS_RESOLUTION = new Size(1280, 720);
+    private static final float TOUCH_SLOP_DP = 8f;
 
     private PreviewView previewView;
     private TextView resultText;
     private FloatingActionButton captureButton;
-    private ProgressBar progressBar; // Still present in layout, but less used for real-time
-    private ImageCapture imageCapture; // Still present for potential future snapshot use, but not for real-time processing
+    private ProgressBar progressBar; // Shown while a frozen page is read at full resolution
     private ExecutorService cameraExecutor;
+    private ProcessCameraProvider cameraProvider;
+    private final CameraSelector cameraSelector = new CameraSelector.Builder()
+            .requireLensFacing(CameraSelector.LENS_FACING_BACK)
+            .build();
+    // Bound only for the duration of one Freeze, so no high-res stream runs the rest of the time
+    private ImageCapture stillCapture;
+    private FramePipeline<Text> stillPipeline;
+    private volatile boolean frozen = false;
+    private final ScriptDetector scriptDetector = new ScriptDetector();
+    private MaterialButton scriptButton;
+    private ScanHistory history;
     private Camera camera;
     private boolean flashEnabled = false;
     private FloatingActionButton flashButton;
     private Button copyTextButton;
     private Button searchTextButton;
 
-    // Callback to update UI from TextAnalyzer
+    // Callback to update UI from the frame pipeline
     private Consumer<String> textResultCallback;
+    private OcrResultDispatcher resultDispatcher;
+    private final OcrConsensus consensus = new OcrConsensus();
+    private final MotionSampler motionSampler = new MotionSampler();
+
+    // Geometry of the last live result; the index is only built once someone taps
+    private GraphicOverlay overlay;
+    private TextGraphic textGraphic;
+    private Text overlayText;
+    private TextLayoutIndex textLayout;
+    private boolean selecting = false;
+
+    private final EntityExtractor entityExtractor = new EntityExtractor();
+    private HorizontalScrollView entityScroll;
+    private ChipGroup entityChips;
+    private List<EntityExtractor.Entity> shownEntities = Collections.emptyList();
 
     @SuppressLint("QueryPermissionsNeeded")
     @Override
@@ -78,15 +120,21 @@ public class TextRecognitionActivity extends AppCompatActivity {
         flashButton = findViewById(R.id.flash_button);
         copyTextButton = findViewById(R.id.copy_text_button);
         searchTextButton = findViewById(R.id.search_text_button);
+        scriptButton = findViewById(R.id.script_button);
+        overlay = findViewById(R.id.graphic_overlay);
+        entityScroll = findViewById(R.id.entity_scroll);
+        entityChips = findViewById(R.id.entity_chips);
 
         // Initially disable copy and search buttons
         setButtonsEnabled(false);
 
         // Set up camera executor
         cameraExecutor = Executors.newSingleThreadExecutor();
+        history = ScanHistory.getInstance(this);
 
-        // Define the callback for text recognition results
-        textResultCallback = detectedText -> runOnUiThread(() -> {
+        // Results go through the dispatcher, which touches the views at most once per display
+        // frame and only when the text changed meaningfully since it was last shown
+        resultDispatcher = new OcrResultDispatcher(detectedText -> {
             if (detectedText != null && !detectedText.isEmpty()) {
                 resultText.setText(detectedText);
                 setButtonsEnabled(true);
@@ -94,33 +142,42 @@ public class TextRecognitionActivity extends AppCompatActivity {
                 resultText.setText(R.string.no_text_detected);
                 setButtonsEnabled(false);
             }
+            showEntities(detectedText);
         });
+        textResultCallback = resultDispatcher::submit;
 
         // Check camera permission
         checkCameraPermission();
 
         // Set up button click listeners
-        // Capture button now "freezes" the current real-time text
+        // Full-resolution stills are read by the same recognizer the live stream currently uses
+        stillPipeline = new FramePipeline.Builder<Text>(
+                image -> RecognizerPool.getInstance().process(scriptDetector.getScript(), image))
+                .setResultListener(this::showFrozenText)
+                .setErrorListener(e -> {
+                    Log.e(TAG, "Full-resolution text recognition failed: " + e.getMessage(), e);
+                    onFreezeFailed();
+                })
+                .build();
+
+        // Capture button freezes the page and reads it again from a full-resolution still;
+        // pressed again it resumes live recognition
         captureButton.setOnClickListener(v -> {
-            String currentText = resultText.getText().toString();
-            if (!currentText.isEmpty() && !currentText.equals(getString(R.string.text_recognition_prompt)) && !currentText.equals(getString(R.string.no_text_detected))) {
-                Toast.makeText(this, R.string.text_frozen_message, Toast.LENGTH_SHORT).show();
-                // No need to re-enable buttons here, they are already enabled by real-time updates
+            if (frozen) {
+                resumeLive();
             } else {
-                Toast.makeText(this, R.string.no_text_to_freeze_message, Toast.LENGTH_SHORT).show();
+                freeze();
             }
         });
 
         flashButton.setOnClickListener(v -> toggleFlash());
+        scriptButton.setOnClickListener(v -> cycleScript());
 
         // Set up Copy Text Button click listener
         copyTextButton.setOnClickListener(v -> {
             String recognizedData = resultText.getText().toString();
             if (!recognizedData.isEmpty() && !recognizedData.equals(getString(R.string.text_recognition_prompt)) && !recognizedData.equals(getString(R.string.no_text_detected))) {
-                ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-                ClipData clip = ClipData.newPlainText("recognized_text", recognizedData);
-                clipboard.setPrimaryClip(clip);
-                Toast.makeText(this, R.string.copied_text_message, Toast.LENGTH_SHORT).show();
+                copyToClipboard(recognizedData);
             } else {
                 Toast.makeText(this, R.string.nothing_to_copy_text_message, Toast.LENGTH_SHORT).show();
             }
@@ -132,28 +189,265 @@ public class TextRecognitionActivity extends AppCompatActivity {
             Log.d(TAG, "Attempting to search for text: " + dataToSearch);
 
             if (!dataToSearch.isEmpty() && !dataToSearch.equals(getString(R.string.text_recognition_prompt)) && !dataToSearch.equals(getString(R.string.no_text_detected))) {
-                try {
-                    Intent intent = new Intent(Intent.ACTION_WEB_SEARCH);
-                    intent.putExtra(SearchManager.QUERY, dataToSearch);
-
-                    if (intent.resolveActivity(getPackageManager()) != null) {
-                        startActivity(intent);
-                        Toast.makeText(this, R.string.searching_text_message, Toast.LENGTH_SHORT).show();
-                        Log.d(TAG, "Successfully launched search intent for: " + dataToSearch);
-                    } else {
-                        Toast.makeText(this, R.string.no_app_to_handle_search_text_message, Toast.LENGTH_LONG).show();
-                        Log.w(TAG, "No app found to handle web search for: " + dataToSearch);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to perform search for text: " + dataToSearch, e);
-                    Toast.makeText(this, R.string.failed_to_search_text_message, Toast.LENGTH_LONG).show();
-                }
+                launchWebSearch(dataToSearch);
             } else {
                 Toast.makeText(this, R.string.nothing_to_search_text_message, Toast.LENGTH_SHORT).show();
                 setButtonsEnabled(false); // Disable if no text
                 Log.d(TAG, "No text to search.");
             }
         });
+
+        // Long-press the search button to search previously captured text
+        searchTextButton.setOnLongClickListener(v -> {
+            showHistorySearch();
+            return true;
+        });
+
+        setUpTapToSelect();
+    }
+
+    private void copyToClipboard(String text) {
+        ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+        ClipData clip = ClipData.newPlainText("recognized_text", text);
+        clipboard.setPrimaryClip(clip);
+        Toast.makeText(this, R.string.copied_text_message, Toast.LENGTH_SHORT).show();
+    }
+
+    private void launchWebSearch(String dataToSearch) {
+        try {
+            Intent intent = new Intent(Intent.ACTION_WEB_SEARCH);
+            intent.putExtra(SearchManager.QUERY, dataToSearch);
+
+            if (intent.resolveActivity(getPackageManager()) != null) {
+                startActivity(intent);
+                Toast.makeText(this, R.string.searching_text_message, Toast.LENGTH_SHORT).show();
+                Log.d(TAG, "Successfully launched search intent for: " + dataToSearch);
+            } else {
+                Toast.makeText(this, R.string.no_app_to_handle_search_text_message, Toast.LENGTH_LONG).show();
+                Log.w(TAG, "No app found to handle web search for: " + dataToSearch);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to perform search for text: " + dataToSearch, e);
+            Toast.makeText(this, R.string.failed_to_search_text_message, Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Tap a word, or long-press a line, on the overlay to copy or search just that text. Touches
+     * that do not land on a word fall through to the controls underneath.
+     */
+    @SuppressLint("ClickableViewAccessibility")
+    private void setUpTapToSelect() {
+        GestureDetector gestures = new GestureDetector(this, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(@NonNull MotionEvent e) {
+                int element = findElementAt(e.getX(), e.getY());
+                if (element >= 0) {
+                    showSelection(textLayout.getElementText(element), textLayout.getElementBox(element));
+                }
+                return true;
+            }
+
+            @Override
+            public void onLongPress(@NonNull MotionEvent e) {
+                int element = findElementAt(e.getX(), e.getY());
+                if (element >= 0) {
+                    showSelection(textLayout.getLineText(element), textLayout.getLineBox(element));
+                }
+            }
+        });
+
+        overlay.setOnTouchListener((v, event) -> {
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN && findElementAt(event.getX(), event.getY()) < 0) {
+                return false;
+            }
+            return gestures.onTouchEvent(event);
+        });
+    }
+
+    private int findElementAt(float viewX, float viewY) {
+        if (overlayText == null || selecting) {
+            return -1;
+        }
+        if (textLayout == null) {
+            textLayout = new TextLayoutIndex(overlayText);
+        }
+        float slopPx = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, TOUCH_SLOP_DP,
+                getResources().getDisplayMetrics());
+        return textLayout.findElement(overlay.toImageX(viewX), overlay.toImageY(viewY),
+                slopPx / overlay.getScaleFactor());
+    }
+
+    private void showSelection(String selectedText, Rect box) {
+        // Hold the overlay on this frame while the user decides what to do with the selection
+        selecting = true;
+        textGraphic.setSelection(box);
+        overlay.postInvalidate();
+
+        String[] actions = {getString(R.string.copy_button_text), getString(R.string.selection_search_action)};
+        new AlertDialog.Builder(this)
+                .setTitle(selectedText)
+                .setItems(actions, (dialog, which) -> {
+                    if (which == 0) {
+                        copyToClipboard(selectedText);
+                    } else {
+                        launchWebSearch(selectedText);
+                    }
+                })
+                .setOnDismissListener(dialog -> {
+                    selecting = false;
+                    textGraphic.setSelection(null);
+                    overlay.postInvalidate();
+                })
+                .show();
+    }
+
+    /**
+     * Shows the entities found in {@code text} as chips. Extraction only scans lines it has not
+     * seen recently, and the chips are only rebuilt when the set of entities changes.
+     */
+    private void showEntities(String text) {
+        List<EntityExtractor.Entity> entities = entityExtractor.extract(text);
+        if (entities.equals(shownEntities)) {
+            return;
+        }
+        shownEntities = entities;
+
+        entityChips.removeAllViews();
+        for (EntityExtractor.Entity entity : entities) {
+            Chip chip = new Chip(this);
+            chip.setText(entity.value);
+            chip.setOnClickListener(v -> openEntity(entity));
+            entityChips.addView(chip);
+        }
+        entityScroll.setVisibility(entities.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
+    private void openEntity(EntityExtractor.Entity entity) {
+        Intent intent;
+        switch (entity.type) {
+            case PHONE:
+                intent = new Intent(Intent.ACTION_DIAL, Uri.parse("tel:" + entity.value.replaceAll("[^\\d+]", "")));
+                break;
+            case EMAIL:
+                intent = new Intent(Intent.ACTION_SENDTO, Uri.parse("mailto:" + entity.value));
+                break;
+            case URL:
+                String url = entity.value.matches("(?i)https?://.*") ? entity.value : "https://" + entity.value;
+                intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+                break;
+            case DATE:
+                intent = new Intent(Intent.ACTION_INSERT, CalendarContract.Events.CONTENT_URI)
+                        .putExtra(CalendarContract.Events.DESCRIPTION, entity.value);
+                break;
+            default:
+                copyToClipboard(entity.value); // Amounts have no natural app to open
+                return;
+        }
+
+        try {
+            startActivity(intent);
+        } catch (ActivityNotFoundException e) {
+            Log.w(TAG, "No app found to open " + entity.type + ": " + entity.value);
+            Toast.makeText(this, R.string.no_app_for_entity, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void showTextLayout(Text visionText, FramePipeline.FrameInfo frameInfo) {
+        // Live frames and the full-resolution still differ in size, and possibly rotation
+        overlay.setCameraInfo(frameInfo.getWidth(), frameInfo.getHeight(),
+                frameInfo.getRotationDegrees(), CameraSelector.LENS_FACING_BACK);
+
+        overlayText = visionText;
+        textLayout = null;
+        // Reuse the graphic of the scene being refilled, never the one on screen
+        GraphicOverlay.Scene scene = overlay.beginScene();
+        TextGraphic graphic = scene.recycle(TextGraphic.class);
+        if (graphic == null) {
+            graphic = new TextGraphic(overlay);
+        }
+        graphic.bind(visionText);
+        textGraphic = graphic;
+        scene.add(graphic);
+        overlay.publish(scene);
+    }
+
+    /**
+     * Asks for search terms and shows matching captures from the recognized text history.
+     */
+    private void showHistorySearch() {
+        EditText queryInput = new EditText(this);
+        queryInput.setHint(R.string.history_search_hint);
+        queryInput.setSingleLine(true);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.history_search_title)
+                .setView(queryInput)
+                .setPositiveButton(R.string.history_search_action, (dialog, which) ->
+                        history.searchText(queryInput.getText().toString(), HISTORY_SEARCH_LIMIT,
+                                this::showHistorySearchResults))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void showHistorySearchResults(List<TextSearchHit> hits) {
+        if (isFinishing()) {
+            return;
+        }
+        if (hits.isEmpty()) {
+            Toast.makeText(this, R.string.history_search_no_results, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        CharSequence[] snippets = new CharSequence[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            snippets[i] = hits.get(i).getHighlightedSnippet();
+        }
+
+        // Picking a match brings the full capture back into the result card for copy/search
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.history_search_title)
+                .setItems(snippets, (dialog, which) -> {
+                    resultText.setText(hits.get(which).content);
+                    showEntities(hits.get(which).content);
+                    resultDispatcher.reset(); // Let the next live result replace it
+                    setButtonsEnabled(true);
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Cycles the recognition script: auto, then each bundled script fixed, then auto again.
+     */
+    private void cycleScript() {
+        RecognizerPool.Script[] scripts = RecognizerPool.Script.values();
+        RecognizerPool.Script next;
+        if (scriptDetector.isAuto()) {
+            next = scripts[0];
+        } else {
+            int index = scriptDetector.getScript().ordinal() + 1;
+            next = index < scripts.length ? scripts[index] : null;
+        }
+        scriptDetector.setFixedScript(next);
+        consensus.reset();
+
+        int label;
+        if (next == null) {
+            label = R.string.script_auto;
+        } else if (next == RecognizerPool.Script.CHINESE) {
+            label = R.string.script_chinese;
+        } else if (next == RecognizerPool.Script.KOREAN) {
+            label = R.string.script_korean;
+        } else {
+            label = R.string.script_latin;
+        }
+        scriptButton.setText(label);
     }
 
     /**
@@ -215,27 +509,46 @@ public class TextRecognitionActivity extends AppCompatActivity {
 
         cameraProviderFuture.addListener(() -> {
             try {
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+                cameraProvider = cameraProviderFuture.get();
 
                 Preview preview = new Preview.Builder().build();
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-                CameraSelector cameraSelector = new CameraSelector.Builder()
-                        .requireLensFacing(CameraSelector.LENS_FACING_BACK)
+                // Real-time text detection through the shared frame pipeline
+                // Recognizers come from the shared pool, picked per frame by the script detector
+                FramePipeline<Text> pipeline = new FramePipeline.Builder<Text>(
+                        image -> RecognizerPool.getInstance().process(scriptDetector.getScript(), image))
+                        // Skip recognition while frozen, or while the page is held still and already read
+                        .setFrameFilter(imageProxy -> !frozen && motionSampler.shouldProcess(imageProxy))
+                        .setResultListener((visionText, frameInfo) -> {
+                            if (frozen) {
+                                return; // Started before Freeze; the still's result takes precedence
+                            }
+                            // Show only lines the last few frames agree on, not this frame's raw read
+                            if (scriptDetector.onResult(visionText)) {
+                                consensus.reset(); // Votes from another model's reads don't compare
+                            }
+                            String transcript = consensus.update(visionText); // null if no text yet
+                            motionSampler.setResultKnown(transcript != null);
+                            textResultCallback.accept(transcript);
+                            if (!selecting) {
+                                showTextLayout(visionText, frameInfo);
+                            }
+                        })
+                        .setErrorListener(e -> {
+                            Log.e(TAG, "Real-time text recognition failed: " + e.getMessage(), e);
+                            if (!frozen) {
+                                textResultCallback.accept(null); // Indicate error
+                            }
+                        })
+                        .setMaxInFlight(ANALYSIS_IN_FLIGHT)
                         .build();
 
-                // ImageCapture is still bound but not used for real-time processing
-                imageCapture = new ImageCapture.Builder()
-                        .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
+                // Setup ImageAnalysis for real-time text detection; the pipeline sets the queue depth
+                ImageAnalysis imageAnalysis = pipeline.configure(new ImageAnalysis.Builder()
+                                .setTargetResolution(ANALYSIS_RESOLUTION))
                         .build();
-
-                // Setup ImageAnalysis for real-time text detection
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST) // Process only the latest frame
-                        .build();
-
-                // Set the analyzer with our custom TextAnalyzer and the callback
-                imageAnalysis.setAnalyzer(cameraExecutor, new TextAnalyzer(textResultCallback));
+                imageAnalysis.setAnalyzer(cameraExecutor, pipeline);
 
                 cameraProvider.unbindAll(); // Unbind all use cases before rebinding
 
@@ -244,7 +557,6 @@ public class TextRecognitionActivity extends AppCompatActivity {
                         this,
                         cameraSelector,
                         preview,
-                        imageCapture, // Keep for potential future snapshot feature, though not used in current real-time flow
                         imageAnalysis // Bind the real-time image analysis
                 );
 
@@ -264,61 +576,104 @@ public class TextRecognitionActivity extends AppCompatActivity {
         }, ContextCompat.getMainExecutor(this));
     }
 
-    // This method is now effectively replaced by real-time analysis
-    // The capture button now triggers a "freeze" of the current real-time text.
-    private void takePhoto() {
-        // This method's logic is now handled by the captureButton's OnClickListener directly
-        // and primarily serves to 'freeze' the currently displayed real-time text.
-        // No explicit image capture or processing happens here anymore.
+    private void freeze() {
+        if (cameraProvider == null || camera == null) {
+            Toast.makeText(this, R.string.camera_not_initialized, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        ImageCapture capture = new ImageCapture.Builder()
+                .setCaptureMode(ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY)
+                .build();
+        try {
+            // Joins the running preview and analysis session for this one still
+            cameraProvider.bindToLifecycle(this, cameraSelector, capture);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Could not bind still capture alongside live analysis", e);
+            Toast.makeText(this, R.string.failed_to_capture_image, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        stillCapture = capture;
+
+        frozen = true;
+        resultDispatcher.cancel(); // Drop live results still waiting for the next frame
+        progressBar.setVisibility(View.VISIBLE);
+        captureButton.setEnabled(false);
+
+        // Decoding and recognition of the still both stay off the main thread
+        capture.takePicture(cameraExecutor, new ImageCapture.OnImageCapturedCallback() {
+            @Override
+            public void onCaptureSuccess(@NonNull ImageProxy imageProxy) {
+                stillPipeline.analyze(imageProxy); // Closes the image once recognition completes
+            }
+
+            @Override
+            public void onError(@NonNull ImageCaptureException exception) {
+                Log.e(TAG, "Full-resolution capture failed: " + exception.getMessage(), exception);
+                runOnUiThread(() -> onFreezeFailed());
+            }
+        });
     }
 
-    // Inner class for real-time text analysis
-    @OptIn(markerClass = ExperimentalGetImage.class)
-    private static class TextAnalyzer implements ImageAnalysis.Analyzer {
-        private final TextRecognizer recognizer;
-        private final Consumer<String> resultCallback;
+    private void showFrozenText(Text visionText, FramePipeline.FrameInfo frameInfo) {
+        String detailedText = visionText.getText();
+        releaseStillCapture();
+        progressBar.setVisibility(View.GONE);
+        captureButton.setEnabled(true);
 
-        TextAnalyzer(Consumer<String> resultCallback) {
-            this.recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
-            this.resultCallback = resultCallback;
+        if (detailedText == null || detailedText.trim().isEmpty()) {
+            Toast.makeText(this, R.string.no_text_to_freeze_message, Toast.LENGTH_SHORT).show();
+            resumeLive();
+            return;
         }
 
-        @Override
-        public void analyze(@NonNull ImageProxy imageProxy) {
-            // Ensure the image is not null
-            if (imageProxy.getImage() == null) {
-                imageProxy.close();
-                resultCallback.accept(null); // Indicate no text or error
-                return;
-            }
+        resultText.setText(detailedText);
+        // Boxes and tap targets now come from the still, so they match the text shown
+        showTextLayout(visionText, frameInfo);
+        showEntities(detailedText);
+        setButtonsEnabled(true);
+        history.record(ScanRecord.text(detailedText));
+        captureButton.setImageResource(android.R.drawable.ic_media_play);
+        captureButton.setContentDescription(getString(R.string.resume_live_desc));
+        Toast.makeText(this, R.string.text_frozen_message, Toast.LENGTH_SHORT).show();
+    }
 
-            // Create InputImage from ImageProxy
-            @SuppressWarnings("UnsafeOptInUsageError")
-            InputImage inputImage = InputImage.fromMediaImage(
-                    Objects.requireNonNull(imageProxy.getImage()),
-                    imageProxy.getImageInfo().getRotationDegrees()
-            );
-
-            // Process image for text recognition
-            recognizer.process(inputImage)
-                    .addOnSuccessListener(visionText -> {
-                        String detectedText = visionText.getText();
-                        resultCallback.accept(detectedText.isEmpty() ? null : detectedText); // Pass null if no text
-                        imageProxy.close(); // Important: Close the image proxy
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Real-time text recognition failed: " + e.getMessage(), e);
-                        resultCallback.accept(null); // Indicate error
-                        imageProxy.close(); // Important: Close the image proxy
-                    });
+    private void onFreezeFailed() {
+        releaseStillCapture();
+        progressBar.setVisibility(View.GONE);
+        captureButton.setEnabled(true);
+        Toast.makeText(this, R.string.failed_to_capture_image, Toast.LENGTH_SHORT).show();
+        resumeLive();
+    }
+
+    private void resumeLive() {
+        frozen = false;
+        // Start over from live frames rather than blending in votes from before the freeze
+        consensus.reset();
+        motionSampler.setResultKnown(false);
+        resultDispatcher.reset();
+        captureButton.setImageResource(android.R.drawable.ic_menu_edit);
+        captureButton.setContentDescription(getString(R.string.capture_button_desc));
+    }
+
+    private void releaseStillCapture() {
+        if (stillCapture != null && cameraProvider != null) {
+            cameraProvider.unbind(stillCapture);
         }
+        stillCapture = null;
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (resultDispatcher != null) {
+            resultDispatcher.cancel();
+        }
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
+        if (history != null) {
+            history.flushAsync();
+        }
     }
 }
@@ -0,0 +1,49 @@
+package com.example.mlkitdemo;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+/**
+ * One full-text search match over the recognized text history, with its text and snippet.
+ */
+public class TextSearchHit extends TextSearchMatch {
+    // Marker characters the snippet query wraps matched terms in; chosen from the private use
+    // area so they can never collide with recognized text
+    static final String MATCH_START = "\uE000";
+    static final String MATCH_END = "\uE001";
+
+    public String content;
+
+    /**
+     * Match context with the matched terms wrapped in {@link #MATCH_START}/{@link #MATCH_END}.
+     */
+    public String snippet;
+
+    /**
+     * Returns the snippet with matched terms in bold and the marker characters removed.
+     */
+    public CharSequence getHighlightedSnippet() {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        if (snippet == null) {
+            return builder;
+        }
+        int position = 0;
+        while (position < snippet.length()) {
+            int start = snippet.indexOf(MATCH_START, position);
+            int end = start < 0 ? -1 : snippet.indexOf(MATCH_END, start);
+            if (start < 0 || end < 0) {
+                builder.append(snippet, position, snippet.length());
+                break;
+            }
+            builder.append(snippet, position, start);
+            int spanStart = builder.length();
+            builder.append(snippet, start + MATCH_START.length(), end);
+            builder.setSpan(new StyleSpan(Typeface.BOLD), spanStart, builder.length(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            position = end + MATCH_END.length();
+        }
+        return builder;
+    }
+}
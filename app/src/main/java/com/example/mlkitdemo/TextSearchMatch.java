@@ -0,0 +1,55 @@
+package com.example.mlkitdemo;
+
+import androidx.room.Ignore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * What ranking needs of one full-text match: the record id, its time and the FTS4 match info.
+ * Text and snippet are only loaded for the best matches, as {@link TextSearchHit}.
+ */
+public class TextSearchMatch {
+    public long id;
+    public long createdAt;
+
+    /**
+     * Raw FTS4 {@code matchinfo(..., 'pcx')} blob used for ranking.
+     */
+    public byte[] matchInfo;
+
+    /**
+     * Cached {@link #score()}, filled in by the search before ranking.
+     */
+    @Ignore
+    public double rank;
+
+    /**
+     * Relevance of this match: for every query term, how many of the term's occurrences across the
+     * whole history fall in this record. Rare terms that a record uses often score highest.
+     */
+    public double score() {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int base = 8 + 12 * (phrase * columnCount + column);
+                if (base + 8 > matchInfo.length) {
+                    return score;
+                }
+                int hitsInRow = buffer.getInt(base);
+                int hitsInAllRows = buffer.getInt(base + 4);
+                if (hitsInRow > 0) {
+                    score += (double) hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.mlkitdemo;
+
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceLandmark;
+
+/**
+ * A face from the per-frame tracking detector, plus the most recent attributes the sampled
+ * classification detector found for the same tracking ID.
+ */
+public class TrackedFace {
+    public final Face face;
+    // Null until the classification pass has seen this face
+    public final Attributes attributes;
+
+    TrackedFace(Face face, Attributes attributes) {
+        this.face = face;
+        this.attributes = attributes;
+    }
+
+    public Rect getBoundingBox() {
+        return face.getBoundingBox();
+    }
+
+    public Integer getTrackingId() {
+        return face.getTrackingId();
+    }
+
+    /**
+     * Classification probabilities and landmarks of one face, taken from a sampled frame.
+     *
+     * Landmarks are stored relative to that frame's bounding box, so they can be placed on the
+     * box the tracking detector reports for later frames and follow the face between samples.
+     */
+    public static final class Attributes {
+        public static final int[] LANDMARK_TYPES = {
+                FaceLandmark.LEFT_EYE,
+                FaceLandmark.RIGHT_EYE,
+                FaceLandmark.NOSE_BASE,
+                FaceLandmark.LEFT_CHEEK,
+                FaceLandmark.RIGHT_CHEEK,
+                FaceLandmark.MOUTH_LEFT,
+                FaceLandmark.MOUTH_RIGHT,
+                FaceLandmark.MOUTH_BOTTOM
+        };
+
+        public final Float smilingProbability;
+        public final Float leftEyeOpenProbability;
+        public final Float rightEyeOpenProbability;
+        // x, y pairs as fractions of the box size, NaN when the landmark was not found
+        private final float[] landmarkOffsets = new float[LANDMARK_TYPES.length * 2];
+
+        Attributes(Face detailFace) {
+            smilingProbability = detailFace.getSmilingProbability();
+            leftEyeOpenProbability = detailFace.getLeftEyeOpenProbability();
+            rightEyeOpenProbability = detailFace.getRightEyeOpenProbability();
+
+            Rect box = detailFace.getBoundingBox();
+            float width = Math.max(box.width(), 1);
+            float height = Math.max(box.height(), 1);
+            for (int i = 0; i < LANDMARK_TYPES.length; i++) {
+                FaceLandmark landmark = detailFace.getLandmark(LANDMARK_TYPES[i]);
+                if (landmark == null) {
+                    landmarkOffsets[2 * i] = Float.NaN;
+                    landmarkOffsets[2 * i + 1] = Float.NaN;
+                } else {
+                    PointF position = landmark.getPosition();
+                    landmarkOffsets[2 * i] = (position.x - box.left) / width;
+                    landmarkOffsets[2 * i + 1] = (position.y - box.top) / height;
+                }
+            }
+        }
+
+        /**
+         * Places every landmark on {@code box} and writes them to {@code out} as x, y pairs in
+         * {@link #LANDMARK_TYPES} order, ready to be mapped in one batch. Landmarks that were not
+         * found are written as NaN.
+         */
+        public void getLandmarks(RectF box, float[] out) {
+            float width = box.width();
+            float height = box.height();
+            for (int i = 0; i < LANDMARK_TYPES.length; i++) {
+                out[2 * i] = box.left + landmarkOffsets[2 * i] * width;
+                out[2 * i + 1] = box.top + landmarkOffsets[2 * i + 1] * height;
+            }
+        }
+    }
+}
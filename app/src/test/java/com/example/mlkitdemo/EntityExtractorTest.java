@@ -0,0 +1,73 @@
+package com.example.mlkitdemo;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityExtractorTest {
+    private final EntityExtractor extractor = new EntityExtractor();
+
+    @Test
+    public void extract_findsEachTypeInReadingOrder() {
+        List<EntityExtractor.Entity> entities = extractor.extract(
+                "Mail info@example.com or visit www.example.org\n"
+                        + "Call +1 (555) 123-4567 before 12/03/2024\n"
+                        + "Total $1,299.50");
+
+        assertEquals(5, entities.size());
+        assertEntity(entities.get(0), EntityExtractor.Type.EMAIL, "info@example.com");
+        assertEntity(entities.get(1), EntityExtractor.Type.URL, "www.example.org");
+        assertEntity(entities.get(2), EntityExtractor.Type.PHONE, "+1 (555) 123-4567");
+        assertEntity(entities.get(3), EntityExtractor.Type.DATE, "12/03/2024");
+        assertEntity(entities.get(4), EntityExtractor.Type.AMOUNT, "$1,299.50");
+    }
+
+    @Test
+    public void extract_matchesWrittenCurrencyOnlyAsAWholeWord() {
+        assertEntity(single("Paid Rs. 500 cash"), EntityExtractor.Type.AMOUNT, "Rs. 500");
+        assertEntity(single("INR 250"), EntityExtractor.Type.AMOUNT, "INR 250");
+
+        assertTrue(extractor.extract("Mrs 100 Main Street").isEmpty());
+        assertTrue(extractor.extract("Open 24 hrs 12 days").isEmpty());
+        assertTrue(extractor.extract("aged 5 yrs 5").isEmpty());
+    }
+
+    @Test
+    public void extract_ignoresShortDigitRunsAsPhones() {
+        assertTrue(extractor.extract("Room 12-34").isEmpty());
+    }
+
+    @Test
+    public void extract_dateFollowedByPeriodStillMatches() {
+        assertEntity(single("Due 2024-05-01."), EntityExtractor.Type.DATE, "2024-05-01");
+    }
+
+    @Test
+    public void extract_collapsesDuplicatesAcrossLines() {
+        List<EntityExtractor.Entity> entities = extractor.extract("a@b.co\na@b.co");
+
+        assertEquals(1, entities.size());
+    }
+
+    @Test
+    public void extract_returnsCachedResultForUnchangedText() {
+        String text = "Visit example.com";
+
+        assertSame(extractor.extract(text), extractor.extract(text));
+    }
+
+    private EntityExtractor.Entity single(String text) {
+        List<EntityExtractor.Entity> entities = extractor.extract(text);
+        assertEquals("entities in \"" + text + "\"", 1, entities.size());
+        return entities.get(0);
+    }
+
+    private static void assertEntity(EntityExtractor.Entity entity, EntityExtractor.Type type, String value) {
+        assertEquals(type, entity.type);
+        assertEquals(value, entity.value);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mlkitdemo;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class Gs1ParserTest {
+    private static final String GS = "\u001D";
+
+    @Test
+    public void parse_readsEncodedAndBracketedFormsAlike() {
+        List<Gs1Parser.Element> encoded = Gs1Parser.parse("]d2" + "0109506000134352" + "17261231"
+                + "10ABC123" + GS + "21SN42");
+        List<Gs1Parser.Element> bracketed = Gs1Parser.parse("(01)09506000134352(17)261231(10)ABC123(21)SN42");
+
+        for (List<Gs1Parser.Element> elements : List.of(encoded, bracketed)) {
+            assertEquals(4, elements.size());
+            assertElement(elements.get(0), "01", "09506000134352");
+            assertElement(elements.get(1), "17", "2026-12-31");
+            assertElement(elements.get(2), "10", "ABC123");
+            assertElement(elements.get(3), "21", "SN42");
+        }
+    }
+
+    @Test
+    public void parse_endsVariableLengthFieldAtSeparatorOrEnd() {
+        List<Gs1Parser.Element> elements = Gs1Parser.parse("10LOT7" + GS + "400PO-99" + GS + "3005");
+
+        assertEquals(3, elements.size());
+        assertElement(elements.get(0), "10", "LOT7");
+        assertElement(elements.get(1), "400", "PO-99");
+        assertElement(elements.get(2), "30", "05");
+    }
+
+    @Test
+    public void parse_toleratesSeparatorAfterFixedLengthField() {
+        List<Gs1Parser.Element> elements = Gs1Parser.parse(GS + "0109506000134352" + GS + "10X");
+
+        assertEquals(2, elements.size());
+        assertElement(elements.get(1), "10", "X");
+    }
+
+    @Test
+    public void parse_placesImpliedDecimalPoint() {
+        List<Gs1Parser.Element> elements = Gs1Parser.parse("(3103)001250(3100)000042");
+
+        assertElement(elements.get(0), "3103", "1.250");
+        assertElement(elements.get(1), "3100", "42");
+    }
+
+    @Test
+    public void parse_rejectsMalformedStrings() {
+        // Variable-length value longer than its maximum
+        assertNull(Gs1Parser.parse("10" + "ABCDEFGHIJKLMNOPQRSTU"));
+        // Empty variable-length value
+        assertNull(Gs1Parser.parse("10" + GS + "21X"));
+        // Truncated fixed-length value
+        assertNull(Gs1Parser.parse("01095060001343"));
+        assertNull(Gs1Parser.parse("(01)0950600013435"));
+        // Unknown identifier and non-numeric date
+        assertNull(Gs1Parser.parse("(89)123"));
+        assertNull(Gs1Parser.parse("(17)26AB31"));
+        assertNull(Gs1Parser.parse(""));
+        assertNull(Gs1Parser.parse(null));
+    }
+
+    @Test
+    public void looksLikeGs1_acceptsOnlyLikelyCandidates() {
+        assertTrue(Gs1Parser.looksLikeGs1("]C10109506000134352"));
+        assertTrue(Gs1Parser.looksLikeGs1("(10)ABC"));
+        assertTrue(Gs1Parser.looksLikeGs1("10ABC" + GS + "21X"));
+        assertTrue(Gs1Parser.looksLikeGs1("0109506000134352"));
+        assertFalse(Gs1Parser.looksLikeGs1("https://example.com"));
+        assertFalse(Gs1Parser.looksLikeGs1("012"));
+    }
+
+    private static void assertElement(Gs1Parser.Element element, String ai, String value) {
+        assertEquals(ai, element.ai);
+        assertEquals(value, element.value);
+    }
+}
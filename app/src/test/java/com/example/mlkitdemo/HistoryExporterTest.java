@@ -0,0 +1,166 @@
+package com.example.mlkitdemo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+public class HistoryExporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void export_quotesCsvFieldsOnlyWhenNeeded() throws IOException {
+        FakeDao dao = new FakeDao(
+                record(2, "TEXT", "say \"hi\", then\nleave", null, 200),
+                record(1, "BARCODE", "plain", "256", 100));
+        File file = folder.newFile("history.csv");
+
+        long count = new HistoryExporter(HistoryExporter.Format.CSV, false).export(dao, null, file);
+
+        assertEquals(2, count);
+        assertEquals("id,type,content,detail,created_at\n"
+                        + "2,TEXT,\"say \"\"hi\"\", then\nleave\",,200\n"
+                        + "1,BARCODE,plain,256,100\n",
+                read(file));
+    }
+
+    @Test
+    public void export_escapesJsonStrings() throws IOException {
+        FakeDao dao = new FakeDao(
+                record(7, "TEXT", "a\"b\\c\nd\te\u0001 é€", null, 5));
+        File file = folder.newFile("history.jsonl");
+
+        new HistoryExporter(HistoryExporter.Format.JSON_LINES, false).export(dao, null, file);
+
+        assertEquals("{\"id\":7,\"type\":\"TEXT\",\"content\":\"a\\\"b\\\\c\\nd\\te\\u0001 é€\","
+                        + "\"detail\":null,\"created_at\":5}\n",
+                read(file));
+    }
+
+    @Test
+    public void export_pagesThroughEveryRecordOfType() throws IOException {
+        List<ScanRecord> records = new ArrayList<>();
+        for (int id = 1200; id > 0; id--) {
+            records.add(record(id, id % 2 == 0 ? "TEXT" : "OBJECT", "r" + id, null, id));
+        }
+        FakeDao dao = new FakeDao(records.toArray(new ScanRecord[0]));
+        File file = folder.newFile("history.jsonl.gz");
+
+        long count = new HistoryExporter(HistoryExporter.Format.JSON_LINES, true).export(dao, "TEXT", file);
+
+        assertEquals(600, count);
+        String text;
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            text = new String(readAll(in), StandardCharsets.UTF_8);
+        }
+        String[] lines = text.split("\n");
+        assertEquals(600, lines.length);
+        assertEquals("{\"id\":1200,\"type\":\"TEXT\",\"content\":\"r1200\",\"detail\":null,\"created_at\":1200}",
+                lines[0]);
+        assertEquals("{\"id\":2,\"type\":\"TEXT\",\"content\":\"r2\",\"detail\":null,\"created_at\":2}",
+                lines[599]);
+    }
+
+    @Test
+    public void export_deletesPartialFileOnFailure() throws IOException {
+        FakeDao dao = new FakeDao() {
+            @Override
+            public List<ScanRecord> loadPage(long beforeId, int limit) {
+                throw new IllegalStateException("database closed");
+            }
+        };
+        File file = new File(folder.getRoot(), "history.csv.gz");
+
+        assertThrows(IllegalStateException.class,
+                () -> new HistoryExporter(HistoryExporter.Format.CSV, true).export(dao, null, file));
+        assertFalse(file.exists());
+    }
+
+    private static ScanRecord record(long id, String type, String content, String detail, long createdAt) {
+        ScanRecord record = new ScanRecord();
+        record.id = id;
+        record.type = type;
+        record.content = content;
+        record.detail = detail;
+        record.createdAt = createdAt;
+        return record;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) > 0) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Serves the keyset pages from an in-memory list, newest first.
+     */
+    private static class FakeDao implements ScanRecordDao {
+        private final List<ScanRecord> records;
+
+        FakeDao(ScanRecord... records) {
+            this.records = Arrays.asList(records);
+        }
+
+        @Override
+        public void insertAll(List<ScanRecord> records) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ScanRecord> loadPage(long beforeId, int limit) {
+            return loadPageOfType(null, beforeId, limit);
+        }
+
+        @Override
+        public List<ScanRecord> loadPageOfType(String type, long beforeId, int limit) {
+            List<ScanRecord> page = new ArrayList<>();
+            for (ScanRecord record : records) {
+                if (page.size() < limit && record.id < beforeId
+                        && (type == null || type.equals(record.type))) {
+                    page.add(record);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        public List<TextSearchMatch> searchPage(String query, String type, long beforeId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<TextSearchHit> loadHits(String query, List<Long> ids) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int count() {
+            return records.size();
+        }
+    }
+}
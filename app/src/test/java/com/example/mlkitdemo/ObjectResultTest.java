@@ -0,0 +1,73 @@
+package com.example.mlkitdemo;
+
+import com.google.mlkit.vision.objects.DetectedObject;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ObjectResultTest {
+
+    @Test
+    public void topLabels_keepsBestThreeHighestFirst() {
+        ObjectResult.Label[] top = ObjectResult.topLabels(Arrays.asList(
+                label("Food", 0.2f, 0),
+                label("Plant", 0.7f, 1),
+                label("Home good", 0.1f, 2),
+                label("Fashion good", 0.9f, 3),
+                label("Place", 0.5f, 4)));
+
+        assertEquals(3, top.length);
+        assertLabel(top[0], "Fashion good", 0.9f, 3);
+        assertLabel(top[1], "Plant", 0.7f, 1);
+        assertLabel(top[2], "Place", 0.5f, 4);
+    }
+
+    @Test
+    public void topLabels_returnsFewerWhenFewerExist() {
+        ObjectResult.Label[] top = ObjectResult.topLabels(Arrays.asList(
+                label("Food", 0.3f, 0),
+                label("Plant", 0.6f, 1)));
+
+        assertEquals(2, top.length);
+        assertLabel(top[0], "Plant", 0.6f, 1);
+        assertLabel(top[1], "Food", 0.3f, 0);
+        assertEquals(0, ObjectResult.topLabels(Collections.emptyList()).length);
+    }
+
+    @Test
+    public void topLabels_keepsEarlierLabelOnTies() {
+        ObjectResult.Label[] top = ObjectResult.topLabels(Arrays.asList(
+                label("Food", 0.5f, 0),
+                label("Plant", 0.5f, 1),
+                label("Place", 0.5f, 2),
+                label("Home good", 0.5f, 3)));
+
+        assertEquals(3, top.length);
+        assertEquals("Food", top[0].text);
+        assertEquals("Plant", top[1].text);
+        assertEquals("Place", top[2].text);
+    }
+
+    @Test
+    public void formatConfidence_roundsToTenthsAndReusesStrings() {
+        assertEquals("87.5%", ObjectResult.formatConfidence(0.8749f));
+        assertEquals("0.0%", ObjectResult.formatConfidence(-1f));
+        assertEquals("100.0%", ObjectResult.formatConfidence(1.5f));
+        assertSame(ObjectResult.formatConfidence(0.42f), ObjectResult.formatConfidence(0.4201f));
+    }
+
+    private static DetectedObject.Label label(String text, float confidence, int index) {
+        return new DetectedObject.Label(text, confidence, index);
+    }
+
+    private static void assertLabel(ObjectResult.Label label, String text, float confidence, int index) {
+        assertEquals(text, label.text);
+        assertEquals(confidence, label.confidence, 0f);
+        assertEquals(index, label.index);
+    }
+}
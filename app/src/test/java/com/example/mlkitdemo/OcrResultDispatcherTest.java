@@ -0,0 +1,94 @@
+package com.example.mlkitdemo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OcrResultDispatcherTest {
+
+    @Test
+    public void withinEditDistance_acceptsDistanceAtTheBandEdge() {
+        // Two substitutions, one insertion and one deletion
+        assertTrue(OcrResultDispatcher.withinEditDistance("kitten", "sitting", 3));
+        assertFalse(OcrResultDispatcher.withinEditDistance("kitten", "sitting", 2));
+
+        assertTrue(OcrResultDispatcher.withinEditDistance("", "abc", 3));
+        assertFalse(OcrResultDispatcher.withinEditDistance("", "abc", 2));
+        assertTrue(OcrResultDispatcher.withinEditDistance("same", "same", 0));
+        assertFalse(OcrResultDispatcher.withinEditDistance("same", "sane", 0));
+    }
+
+    @Test
+    public void withinEditDistance_handlesEditsOutsideTheDiagonal() {
+        // Shifting by max characters stays inside the band; one more falls outside it
+        assertTrue(OcrResultDispatcher.withinEditDistance("abcdefgh", "xxabcdefgh", 2));
+        assertFalse(OcrResultDispatcher.withinEditDistance("abcdefgh", "xxxabcdefgh", 2));
+        assertTrue(OcrResultDispatcher.withinEditDistance("abcdefgh", "abcdefghxx", 2));
+        assertTrue(OcrResultDispatcher.withinEditDistance("xxabcdefgh", "abcdefghxx", 4));
+        assertFalse(OcrResultDispatcher.withinEditDistance("xxabcdefgh", "abcdefghxx", 3));
+    }
+
+    @Test
+    public void withinEditDistance_matchesFullLevenshtein() {
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            String a = randomText(random, random.nextInt(12));
+            String b = randomText(random, random.nextInt(12));
+            int distance = levenshtein(a, b);
+            for (int max = 0; max <= 6; max++) {
+                assertEquals(a + " / " + b + " within " + max, distance <= max,
+                        OcrResultDispatcher.withinEditDistance(a, b, max));
+            }
+        }
+    }
+
+    @Test
+    public void isMeaningfulChange_toleratesJitterOnLongTextOnly() {
+        String longText = repeat("recognized line of text ", 5);
+        String jittered = longText.substring(0, 10) + "X" + longText.substring(11);
+
+        assertFalse(OcrResultDispatcher.isMeaningfulChange(longText, longText));
+        assertFalse(OcrResultDispatcher.isMeaningfulChange(longText, jittered));
+        assertTrue(OcrResultDispatcher.isMeaningfulChange("short", "shirt"));
+        assertTrue(OcrResultDispatcher.isMeaningfulChange(null, "text"));
+        assertTrue(OcrResultDispatcher.isMeaningfulChange("text", null));
+        assertFalse(OcrResultDispatcher.isMeaningfulChange(null, null));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(3)));
+        }
+        return text.toString();
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(text);
+        }
+        return result.toString();
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1));
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
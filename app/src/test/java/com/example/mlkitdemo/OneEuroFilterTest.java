@@ -0,0 +1,75 @@
+package com.example.mlkitdemo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OneEuroFilterTest {
+    private static final long FRAME_MS = 33;
+
+    @Test
+    public void filter_startsAtFirstMeasurementAndHoldsConstantSignal() {
+        OneEuroFilter filter = new OneEuroFilter(1f, 0.01f, 1f);
+
+        assertEquals(100f, filter.filter(100f, 0), 0f);
+        for (int i = 1; i <= 30; i++) {
+            assertEquals(100f, filter.filter(100f, i * FRAME_MS), 1e-4f);
+        }
+    }
+
+    @Test
+    public void filter_damsJitterOnStillSignal() {
+        OneEuroFilter filter = new OneEuroFilter(1f, 0.01f, 1f);
+        filter.filter(100f, 0);
+
+        float maxDeviation = 0f;
+        for (int i = 1; i <= 60; i++) {
+            float measurement = i % 2 == 0 ? 104f : 96f;
+            float value = filter.filter(measurement, i * FRAME_MS);
+            maxDeviation = Math.max(maxDeviation, Math.abs(value - 100f));
+        }
+        assertTrue("deviation " + maxDeviation, maxDeviation < 1.5f);
+    }
+
+    @Test
+    public void filter_lagsLessOnFastMotionWithHigherBeta() {
+        OneEuroFilter smooth = new OneEuroFilter(1f, 0f, 1f);
+        OneEuroFilter responsive = new OneEuroFilter(1f, 0.05f, 1f);
+
+        float target = 0f;
+        float smoothValue = 0f;
+        float responsiveValue = 0f;
+        for (int i = 0; i <= 30; i++) {
+            target = i * 20f;
+            smoothValue = smooth.filter(target, i * FRAME_MS);
+            responsiveValue = responsive.filter(target, i * FRAME_MS);
+        }
+        float smoothLag = target - smoothValue;
+        float responsiveLag = target - responsiveValue;
+        assertTrue("lag " + responsiveLag + " vs " + smoothLag, responsiveLag < smoothLag / 2);
+    }
+
+    @Test
+    public void filter_ignoresMeasurementsThatDoNotMoveTimeForward() {
+        OneEuroFilter filter = new OneEuroFilter(1f, 0.01f, 1f);
+        filter.filter(100f, 100);
+
+        assertEquals(100f, filter.filter(500f, 100), 0f);
+        assertEquals(100f, filter.filter(500f, 50), 0f);
+    }
+
+    @Test
+    public void predict_extrapolatesAlongVelocityWithinLimit() {
+        OneEuroFilter filter = new OneEuroFilter(1f, 0.05f, 1f);
+        for (int i = 0; i <= 60; i++) {
+            filter.filter(i * 10f, i * FRAME_MS);
+        }
+        long last = filter.getLastTimeMs();
+        float value = filter.predict(last, 100);
+
+        assertTrue(filter.predict(last + 50, 100) > value);
+        assertEquals(filter.predict(last + 100, 100), filter.predict(last + 500, 100), 0f);
+        assertEquals(value, filter.predict(last - 50, 100), 0f);
+    }
+}
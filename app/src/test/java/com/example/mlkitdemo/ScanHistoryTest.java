@@ -0,0 +1,38 @@
+package com.example.mlkitdemo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScanHistoryTest {
+
+    @Test
+    public void toPrefixQuery_makesEveryWordAPrefixTerm() {
+        assertEquals("total* amount*", ScanHistory.toPrefixQuery("total amount"));
+        assertEquals("order* 42*", ScanHistory.toPrefixQuery("  order   42 "));
+    }
+
+    @Test
+    public void toPrefixQuery_dropsFtsSyntax() {
+        // Phrase quotes, exclusion, column filters, grouping and wildcards never reach MATCH
+        assertEquals("exact* phrase*", ScanHistory.toPrefixQuery("\"exact phrase\""));
+        assertEquals("milk* bread*", ScanHistory.toPrefixQuery("milk -bread"));
+        assertEquals("content* secret*", ScanHistory.toPrefixQuery("content:secret"));
+        assertEquals("a* b* c*", ScanHistory.toPrefixQuery("(a (b)) c*"));
+        assertEquals("tea* near*", ScanHistory.toPrefixQuery("tea* near^"));
+        // Followed by '*', operator keywords are read as ordinary prefix terms
+        assertEquals("cats* OR* dogs*", ScanHistory.toPrefixQuery("cats OR dogs"));
+    }
+
+    @Test
+    public void toPrefixQuery_keepsLettersAndDigitsOfAnyScript() {
+        assertEquals("café* 東京* 123*", ScanHistory.toPrefixQuery("café, 東京; 123!"));
+    }
+
+    @Test
+    public void toPrefixQuery_returnsEmptyForNothingSearchable() {
+        assertEquals("", ScanHistory.toPrefixQuery(null));
+        assertEquals("", ScanHistory.toPrefixQuery(""));
+        assertEquals("", ScanHistory.toPrefixQuery(" \"*-:() "));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.mlkitdemo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextLayoutIndexTest {
+
+    // Two lines: "Hello world" above "Total 12.50"
+    private static final int[] ELEMENT_BOUNDS = {
+            10, 10, 60, 30,
+            70, 10, 130, 30,
+            10, 50, 60, 70,
+            70, 50, 120, 70,
+    };
+    private static final String[] ELEMENT_TEXTS = {"Hello", "world", "Total", "12.50"};
+    private static final int[] ELEMENT_LINES = {0, 0, 1, 1};
+    private static final int[] LINE_BOUNDS = {10, 10, 130, 30, 10, 50, 120, 70};
+    private static final String[] LINE_TEXTS = {"Hello world", "Total 12.50"};
+
+    private final TextLayoutIndex index = new TextLayoutIndex(
+            ELEMENT_BOUNDS, ELEMENT_TEXTS, ELEMENT_LINES, LINE_BOUNDS, LINE_TEXTS);
+
+    @Test
+    public void findElement_returnsWordUnderPoint() {
+        assertEquals(4, index.getElementCount());
+        assertEquals(1, index.findElement(100, 20, 0));
+        assertEquals("world", index.getElementText(1));
+        assertEquals(2, index.findElement(10, 70, 0));
+        assertEquals("Total 12.50", index.getLineText(3));
+    }
+
+    @Test
+    public void findElement_usesSlopAndPrefersClosestCentre() {
+        // In the gap between the two words of the first line
+        assertEquals(-1, index.findElement(64, 20, 0));
+        assertEquals(0, index.findElement(64, 20, 6));
+        assertEquals(1, index.findElement(67, 20, 6));
+
+        // Between the lines, closer to the second one
+        assertEquals(-1, index.findElement(40, 42, 5));
+        assertEquals(2, index.findElement(40, 42, 10));
+    }
+
+    @Test
+    public void findElement_findsNothingOutsideText() {
+        assertEquals(-1, index.findElement(500, 500, 20));
+        assertEquals(-1, index.findElement(-50, 20, 20));
+        assertEquals(-1, new TextLayoutIndex(new int[0], new String[0], new int[0], new int[0], new String[0])
+                .findElement(10, 10, 20));
+    }
+
+    @Test
+    public void findElement_matchesLinearScanOnDensePage() {
+        Random random = new Random(7);
+        int count = 400;
+        int[] bounds = new int[count * 4];
+        String[] texts = new String[count];
+        int[] lines = new int[count];
+        for (int i = 0; i < count; i++) {
+            int left = random.nextInt(2000);
+            int top = random.nextInt(3000);
+            // Mostly word-sized boxes, with an occasional long one spanning many cells
+            int width = random.nextInt(10) == 0 ? 300 + random.nextInt(600) : 10 + random.nextInt(80);
+            bounds[i * 4] = left;
+            bounds[i * 4 + 1] = top;
+            bounds[i * 4 + 2] = left + width;
+            bounds[i * 4 + 3] = top + 8 + random.nextInt(30);
+            texts[i] = "w" + i;
+        }
+        TextLayoutIndex dense = new TextLayoutIndex(bounds, texts, lines, new int[4], new String[]{"line"});
+
+        for (int tap = 0; tap < 5000; tap++) {
+            float x = random.nextFloat() * 2200 - 100;
+            float y = random.nextFloat() * 3200 - 100;
+            float slop = random.nextInt(3) * 12f;
+            int expected = linearScan(bounds, x, y, slop);
+            int actual = dense.findElement(x, y, slop);
+            if (expected < 0) {
+                assertEquals(-1, actual);
+            } else {
+                assertEquals(distance(bounds, expected, x, y), distance(bounds, actual, x, y), 0f);
+            }
+        }
+    }
+
+    private static int linearScan(int[] bounds, float x, float y, float slop) {
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < bounds.length / 4; i++) {
+            if (x < bounds[i * 4] - slop || x > bounds[i * 4 + 2] + slop
+                    || y < bounds[i * 4 + 1] - slop || y > bounds[i * 4 + 3] + slop) {
+                continue;
+            }
+            float distance = distance(bounds, i, x, y);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float distance(int[] bounds, int element, float x, float y) {
+        float dx = (bounds[element * 4] + bounds[element * 4 + 2]) * 0.5f - x;
+        float dy = (bounds[element * 4 + 1] + bounds[element * 4 + 3]) * 0.5f - y;
+        return dx * dx + dy * dy;
+    }
+}